@@ -0,0 +1,23 @@
+package com.github.t1.annotations;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+
+/**
+ * A query for one annotation type, prepared once by {@link Annotations#query(Class)},
+ * e.g. in a static field, and then used for many lookups. Implementations can cache the results
+ * of every query in the targets, so a lookup is almost as cheap as reading a field.
+ * <p>
+ * All methods return the same as {@link Annotations#getOrNull(Class)} would,
+ * i.e. <code>null</code> if there is no such annotation, and they fail if it's ambiguous.
+ */
+public interface AnnotationQuery<T extends Annotation> {
+    Class<T> type();
+
+    T on(Class<?> type);
+
+    T on(Field field);
+
+    T on(Method method);
+}
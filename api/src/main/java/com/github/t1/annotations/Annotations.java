@@ -1,18 +1,36 @@
 package com.github.t1.annotations;
 
 import java.lang.annotation.Annotation;
+import java.lang.reflect.AnnotatedElement;
 import java.lang.reflect.Field;
 import java.lang.reflect.Method;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Consumer;
 import java.util.stream.Stream;
 
+import static java.lang.invoke.MethodType.methodType;
+
 public interface Annotations {
+    /**
+     * Start loading the annotations now, e.g. when your framework boots, instead of when they are first requested.
+     * Depending on the implementation, this may return before the loading is done.
+     */
+    static void warmUp() {
+        AnnotationsLoader.INSTANCE.warmUp();
+    }
+
+    /** Prepare a query for one annotation type; this is faster when you repeatedly look for the same type */
+    static <T extends Annotation> AnnotationQuery<T> query(Class<T> type) {
+        return AnnotationsLoader.INSTANCE.query(type);
+    }
+
     static Annotations on(Class<?> type) {
         return AnnotationsLoader.INSTANCE.onType(type);
     }
 
     static Annotations on(Field field) {
-        return onField(field.getDeclaringClass(), field.getName());
+        return AnnotationsLoader.INSTANCE.onField(field);
     }
 
     static Annotations onField(Class<?> type, String fieldName) {
@@ -20,13 +38,42 @@ public interface Annotations {
     }
 
     static Annotations on(Method method) {
-        return onMethod(method.getDeclaringClass(), method.getName(), method.getParameterTypes());
+        return AnnotationsLoader.INSTANCE.onMethod(method);
     }
 
     static Annotations onMethod(Class<?> type, String methodName, Class<?>... argTypes) {
         return AnnotationsLoader.INSTANCE.onMethod(type, methodName, argTypes);
     }
 
+    /**
+     * The annotations of all fields of this type, including the inherited ones, by their name.
+     * This is faster than calling {@link #onField(Class, String)} for every field.
+     */
+    static Map<String, Annotations> onFields(Class<?> type) {
+        return AnnotationsLoader.INSTANCE.onFields(type);
+    }
+
+    /**
+     * The annotations of all methods of this type, including the inherited ones, by their signature,
+     * with the parameter types as by {@link Class#getTypeName()}, e.g. <code>foo(java.lang.String[], int)</code>.
+     * Synthetic methods, e.g. bridge methods, are not included. This is faster than calling
+     * {@link #onMethod(Class, String, Class[])} for every method.
+     */
+    static Map<String, Annotations> onMethods(Class<?> type) {
+        return AnnotationsLoader.INSTANCE.onMethods(type);
+    }
+
+    /**
+     * All classes, fields, and methods with an annotation of this type, after all annotations are resolved,
+     * i.e. including those from stereotypes, mixins, etc. Only the classes the implementation knows about,
+     * e.g. from its index, can be found; and they have to be loaded, if they are not loaded, yet.
+     *
+     * @throws UnsupportedOperationException if the implementation doesn't know all targets
+     */
+    static Stream<AnnotatedElement> allTargetsAnnotatedWith(Class<? extends Annotation> type) {
+        return AnnotationsLoader.INSTANCE.allTargetsAnnotatedWith(type);
+    }
+
     /**
      * Get all {@link Annotation} instances.
      * If the annotation type is {@link java.lang.annotation.Repeatable}, the same type
@@ -60,4 +107,63 @@ public interface Annotations {
      * {@link Annotation} instances of this <code>type</code>.
      */
     <T extends Annotation> Stream<T> all(Class<T> type);
+
+    /**
+     * Is there at least one {@link Annotation} instance of this <code>type</code>?
+     * In contrast to <code>get(type).isPresent()</code>, this is never ambiguous,
+     * and implementations can answer it without creating any objects.
+     */
+    default boolean isPresent(Class<? extends Annotation> type) {
+        return all(type).findAny().isPresent();
+    }
+
+    /**
+     * Like {@link #get(Class)}, but returns <code>null</code> instead of an empty Optional,
+     * so implementations can answer it without creating any objects besides the annotation itself.
+     */
+    default <T extends Annotation> T getOrNull(Class<T> type) {
+        return get(type).orElse(null);
+    }
+
+    /**
+     * Like {@link #all(Class)}, but passes the annotations to the <code>action</code>,
+     * so implementations can do that without creating a Stream.
+     */
+    default <T extends Annotation> void forEach(Class<T> type, Consumer<? super T> action) {
+        all(type).forEach(action);
+    }
+
+    /**
+     * Get the value of one <code>member</code> of the annotation of this <code>type</code>,
+     * or <code>null</code>, if there is no such annotation. Like {@link #get(Class)}, this fails,
+     * if the annotation is ambiguous. Primitive values are returned as their wrapper types,
+     * and <code>Class</code> values can also be requested as <code>String</code> names.
+     * Implementations can do this without creating the annotation instance.
+     *
+     * @throws IllegalArgumentException if the <code>valueType</code> doesn't match the type of the member
+     */
+    default <T> T value(Class<? extends Annotation> type, String member, Class<T> valueType) {
+        Annotation annotation = getOrNull(type);
+        if (annotation == null)
+            return null;
+        Object value;
+        Class<?> returnType;
+        try {
+            Method method = type.getMethod(member);
+            returnType = method.getReturnType();
+            value = method.invoke(annotation);
+        } catch (ReflectiveOperationException e) {
+            throw new RuntimeException("can't get " + member + " of " + annotation, e);
+        }
+        if (returnType.equals(Class.class) && valueType.equals(String.class))
+            value = ((Class<?>) value).getName();
+        else if (returnType.equals(Class[].class) && valueType.equals(String[].class))
+            value = Stream.of((Class<?>[]) value).map(Class::getName).toArray(String[]::new);
+        else if (!methodType(valueType).wrap().returnType().isAssignableFrom(methodType(returnType).wrap().returnType()))
+            throw new IllegalArgumentException("member " + member + " of " + type.getName()
+                + " is a " + returnType.getTypeName() + ", not a " + valueType.getTypeName());
+        @SuppressWarnings("unchecked")
+        T result = valueType.isPrimitive() ? (T) value : valueType.cast(value);
+        return result;
+    }
 }
@@ -1,8 +1,18 @@
 package com.github.t1.annotations;
 
+import java.lang.annotation.Annotation;
+import java.lang.reflect.AnnotatedElement;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.ServiceConfigurationError;
 import java.util.ServiceLoader;
+import java.util.stream.Stream;
+
+import static java.util.Collections.unmodifiableMap;
+import static java.util.stream.Collectors.joining;
 
 /**
  * SPI + Singleton for loading the implementation
@@ -21,9 +31,90 @@ public abstract class AnnotationsLoader {
         return graphQlClientBuilder;
     }
 
+    /** Called by {@link Annotations#warmUp()}, after the singleton has been created, i.e. the loading has started */
+    public void warmUp() {}
+
     public abstract Annotations onType(Class<?> type);
 
     public abstract Annotations onField(Class<?> type, String fieldName);
 
     public abstract Annotations onMethod(Class<?> type, String methodName, Class<?>... argTypes);
+
+    /** Override this, if you can look up a {@link Field} faster than by its name */
+    public Annotations onField(Field field) {
+        return onField(field.getDeclaringClass(), field.getName());
+    }
+
+    /** Override this, if you can look up a {@link Method} faster than by its name and parameter types */
+    public Annotations onMethod(Method method) {
+        return onMethod(method.getDeclaringClass(), method.getName(), method.getParameterTypes());
+    }
+
+    /**
+     * Override this, if you can look up all fields faster than one by one;
+     * a field hides the fields with the same name in the super classes.
+     *
+     * @see Annotations#onFields(Class)
+     */
+    public Map<String, Annotations> onFields(Class<?> type) {
+        Map<String, Annotations> fields = new LinkedHashMap<>();
+        for (Class<?> declaring = type; declaring != null && declaring != Object.class; declaring = declaring.getSuperclass())
+            for (Field field : declaring.getDeclaredFields())
+                if (!field.isSynthetic())
+                    fields.putIfAbsent(field.getName(), onField(field));
+        return unmodifiableMap(fields);
+    }
+
+    /**
+     * Override this, if you can look up all methods faster than one by one;
+     * a method overrides the methods with the same signature in the super types.
+     *
+     * @see Annotations#onMethods(Class)
+     */
+    public Map<String, Annotations> onMethods(Class<?> type) {
+        Map<String, Annotations> methods = new LinkedHashMap<>();
+        addMethods(type, methods);
+        return unmodifiableMap(methods);
+    }
+
+    private void addMethods(Class<?> type, Map<String, Annotations> methods) {
+        if (type == null || type == Object.class)
+            return;
+        for (Method method : type.getDeclaredMethods())
+            if (!method.isSynthetic())
+                methods.putIfAbsent(signature(method), onMethod(method));
+        for (Class<?> anInterface : type.getInterfaces())
+            addMethods(anInterface, methods);
+        addMethods(type.getSuperclass(), methods);
+    }
+
+    /** e.g. <code>foo(java.lang.String, int)</code> */
+    private static String signature(Method method) {
+        return Stream.of(method.getParameterTypes()).map(Class::getTypeName)
+            .collect(joining(", ", method.getName() + "(", ")"));
+    }
+
+    /**
+     * Override this, if you know all targets, e.g. from an index; the single lookups can't find them.
+     *
+     * @see Annotations#allTargetsAnnotatedWith(Class)
+     */
+    public Stream<AnnotatedElement> allTargetsAnnotatedWith(Class<? extends Annotation> type) {
+        throw new UnsupportedOperationException(getClass().getName() + " can't find all targets annotated with " + type.getName());
+    }
+
+    /** Override this, if you can answer the queries faster than by the {@link Annotations} of every target */
+    public <T extends Annotation> AnnotationQuery<T> query(Class<T> type) {
+        return new AnnotationQuery<T>() {
+            @Override public Class<T> type() { return type; }
+
+            @Override public T on(Class<?> target) { return onType(target).getOrNull(type); }
+
+            @Override public T on(Field field) { return onField(field).getOrNull(type); }
+
+            @Override public T on(Method method) { return onMethod(method).getOrNull(type); }
+
+            @Override public String toString() { return "query for " + type.getName(); }
+        };
+    }
 }
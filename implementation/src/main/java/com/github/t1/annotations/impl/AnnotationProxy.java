@@ -2,81 +2,297 @@ package com.github.t1.annotations.impl;
 
 import com.github.t1.annotations.index.AnnotationInstance;
 import com.github.t1.annotations.index.AnnotationValue;
+import com.github.t1.annotations.index.LoadedClasses;
 
 import java.lang.annotation.Annotation;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Array;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
 import java.lang.reflect.Proxy;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
 
 import static com.github.t1.annotations.impl.Utils.enumValue;
+import static com.github.t1.annotations.index.ClassInfo.className;
 import static com.github.t1.annotations.index.ClassInfo.toClass;
+import static com.github.t1.annotations.index.LoadedClasses.contextClassLoader;
 
 /**
- * {@link #build() Builds} a {@link Proxy dynamic proxy} that delegates to three
- * function objects for the implementation.
+ * {@link #build() Builds} a {@link Proxy dynamic proxy} for an annotation instance.
+ * Every member value is converted when it's first called, and then it's only a lookup
+ * in the value table; generating real classes would require access to the class loader internals.
+ * Like with the JDK, a value that can't be converted (e.g. a class that can't be loaded) fails only
+ * when that member is called.
+ * <code>equals</code> and <code>hashCode</code> are member-wise as defined in {@link Annotation},
+ * while <code>toString</code> is rendered like Jandex does, when it's first needed.
  */
-class AnnotationProxy {
+class AnnotationProxy implements InvocationHandler {
+    /** The proxy is cached in the instance, so we build it only once */
     static Annotation proxy(AnnotationInstance annotationInstance) {
+        return annotationInstance.proxy(AnnotationProxy::build);
+    }
+
+    private static Annotation build(AnnotationInstance annotationInstance) {
         return new AnnotationProxy(
-            annotationInstance.typeName(),
-            annotationInstance.toString(),
-            name -> annotationInstance.value(name).value())
+            loadClass(annotationInstance.typeName()),
+            annotationInstance::toString,
+            name -> {
+                AnnotationValue value = annotationInstance.valueOrNull(name);
+                return (value == null) ? null : value.value();
+            })
             .build();
     }
 
-    private final String typeName;
-    private final String toString;
+    /** The member methods of an annotation type and their position in the value table of each proxy */
+    private static class Members {
+        private final Method[] methods;
+        private final Map<Method, Integer> positions = new HashMap<>();
+        private final Map<String, Method> byName = new HashMap<>();
+
+        private Members(Class<?> type) {
+            this.methods = Stream.of(type.getDeclaredMethods())
+                .filter(method -> !method.isSynthetic() && !Modifier.isStatic(method.getModifiers()))
+                .toArray(Method[]::new);
+            for (int i = 0; i < methods.length; i++) {
+                positions.put(methods[i], i);
+                byName.put(methods[i].getName(), methods[i]);
+            }
+        }
+    }
+
+    private static final ClassValue<Members> MEMBERS = new ClassValue<Members>() {
+        @Override protected Members computeValue(Class<?> type) { return new Members(type); }
+    };
+
+    private final Class<?> annotationType;
+    private final Supplier<String> toStringSupplier;
     private final Function<String, Object> property;
+    private final Members members;
+    /** The member values in the order of the {@link #members}, converted when they are first needed */
+    private final AtomicReferenceArray<Object> values;
+    /** As defined in {@link Annotation#hashCode()}; computed when first needed, as it needs all values */
+    private volatile Integer hashCode;
+    private String toString;
 
-    private AnnotationProxy(String typeName, String toString, Function<String, Object> property) {
-        this.typeName = typeName;
-        this.toString = toString;
+    private AnnotationProxy(Class<?> annotationType, Supplier<String> toStringSupplier, Function<String, Object> property) {
+        this.annotationType = annotationType;
+        this.toStringSupplier = toStringSupplier;
         this.property = property;
+        this.members = MEMBERS.get(annotationType);
+        this.values = new AtomicReferenceArray<>(members.methods.length);
     }
 
-    private Annotation build() {
-        Class<?>[] interfaces = new Class[]{getAnnotationType(), Annotation.class};
-        return (Annotation) Proxy.newProxyInstance(getClassLoader(), interfaces, this::invoke);
+    /** The converted value of a member; the race is benign, as the result is always equal */
+    private Object value(int position) {
+        Object value = values.get(position);
+        if (value == null) {
+            value = convert(members.methods[position]);
+            values.set(position, value);
+        }
+        return value;
     }
 
-    private Class<?> getAnnotationType() {
-        return loadClass(typeName);
+    /**
+     * The value is missing only for the default value of a nested annotation, as those don't know the index;
+     * then we take it from the annotation type, just like the JDK.
+     */
+    private Object convert(Method member) {
+        Object value = property.apply(member.getName());
+        return (value == null) ? member.getDefaultValue() : toType(value, member.getReturnType());
+    }
+
+    private int hash() {
+        Integer hashCode = this.hashCode;
+        if (hashCode == null) {
+            int hash = 0;
+            for (int i = 0; i < members.methods.length; i++)
+                hash += (127 * members.methods[i].getName().hashCode()) ^ valueHash(value(i));
+            this.hashCode = hashCode = hash;
+        }
+        return hashCode;
+    }
+
+    private static int valueHash(Object value) {
+        if (!value.getClass().isArray())
+            return value.hashCode();
+        if (value instanceof Object[])
+            return Arrays.hashCode((Object[]) value);
+        if (value instanceof boolean[])
+            return Arrays.hashCode((boolean[]) value);
+        if (value instanceof byte[])
+            return Arrays.hashCode((byte[]) value);
+        if (value instanceof char[])
+            return Arrays.hashCode((char[]) value);
+        if (value instanceof short[])
+            return Arrays.hashCode((short[]) value);
+        if (value instanceof int[])
+            return Arrays.hashCode((int[]) value);
+        if (value instanceof long[])
+            return Arrays.hashCode((long[]) value);
+        if (value instanceof float[])
+            return Arrays.hashCode((float[]) value);
+        return Arrays.hashCode((double[]) value);
+    }
+
+    private Annotation build() {
+        Class<?>[] interfaces = new Class[]{annotationType, Annotation.class};
+        return (Annotation) Proxy.newProxyInstance(contextClassLoader(), interfaces, this);
     }
 
     private static Class<?> loadClass(String typeName) {
         try {
-            return getClassLoader().loadClass(typeName);
+            return LoadedClasses.load(typeName);
         } catch (ClassNotFoundException e) {
             throw new RuntimeException("can't load annotation type " + typeName, e);
         }
     }
 
-    private static ClassLoader getClassLoader() {
-        ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
-        return (classLoader == null) ? ClassLoader.getSystemClassLoader() : classLoader;
+    /** Formatting is expensive, so we only do it when needed; the race is benign, as the result is always equal */
+    private String string() {
+        if (toString == null)
+            toString = toStringSupplier.get();
+        return toString;
     }
 
-    Object invoke(Object proxy, Method method, Object... args) {
+    @Override public Object invoke(Object proxy, Method method, Object[] args) {
+        Integer position = members.positions.get(method);
+        if (position != null)
+            return copy(value(position));
+
         String name = method.getName();
         if (method.getParameterCount() == 1 && "equals".equals(name))
-            return toString.equals(args[0].toString());
+            return isEqualTo(proxy, args[0]);
         // no other methods on annotations can have arguments (except for one `wait`)
         assert method.getParameterCount() == 0;
         assert args == null || args.length == 0;
         if ("hashCode".equals(name))
-            return toString.hashCode();
+            return hash();
         if ("annotationType".equals(name))
-            return getAnnotationType();
+            return annotationType;
         if ("toString".equals(name))
-            return toString;
+            return string();
 
-        Object value = property.apply(name);
+        throw new UnsupportedOperationException("unexpected method " + method + " on " + string());
+    }
+
+    /** As defined in {@link Annotation#equals(Object)}, so it also works with annotations from the JDK */
+    private boolean isEqualTo(Object proxy, Object other) {
+        if (proxy == other)
+            return true;
+        if (!annotationType.isInstance(other))
+            return false;
+        AnnotationProxy that = annotationProxyOf(other);
+        if (that != null && that.hash() != this.hash())
+            return false;
+        for (int i = 0; i < members.methods.length; i++) {
+            Object otherValue = (that != null) ? that.value(i) : valueOf(members.methods[i], other);
+            if (!valueEquals(value(i), otherValue))
+                return false;
+        }
+        return true;
+    }
+
+    private static AnnotationProxy annotationProxyOf(Object object) {
+        if (!Proxy.isProxyClass(object.getClass()))
+            return null;
+        InvocationHandler handler = Proxy.getInvocationHandler(object);
+        return (handler instanceof AnnotationProxy) ? (AnnotationProxy) handler : null;
+    }
+
+    private static Object valueOf(Method member, Object annotation) {
+        try {
+            member.setAccessible(true);
+            return member.invoke(annotation);
+        } catch (IllegalAccessException | InvocationTargetException e) {
+            throw new RuntimeException("can't get " + member.getName() + " of " + annotation, e);
+        }
+    }
+
+    private static boolean valueEquals(Object value, Object other) {
+        if (!value.getClass().isArray())
+            return value.equals(other);
+        if (value instanceof Object[])
+            return other instanceof Object[] && Arrays.equals((Object[]) value, (Object[]) other);
+        if (value instanceof boolean[])
+            return other instanceof boolean[] && Arrays.equals((boolean[]) value, (boolean[]) other);
+        if (value instanceof byte[])
+            return other instanceof byte[] && Arrays.equals((byte[]) value, (byte[]) other);
+        if (value instanceof char[])
+            return other instanceof char[] && Arrays.equals((char[]) value, (char[]) other);
+        if (value instanceof short[])
+            return other instanceof short[] && Arrays.equals((short[]) value, (short[]) other);
+        if (value instanceof int[])
+            return other instanceof int[] && Arrays.equals((int[]) value, (int[]) other);
+        if (value instanceof long[])
+            return other instanceof long[] && Arrays.equals((long[]) value, (long[]) other);
+        if (value instanceof float[])
+            return other instanceof float[] && Arrays.equals((float[]) value, (float[]) other);
+        return other instanceof double[] && Arrays.equals((double[]) value, (double[]) other);
+    }
 
-        return toType(value, method.getReturnType());
+    /** Arrays are mutable, so every caller gets a copy, just like with the annotations from the JDK */
+    private static Object copy(Object value) {
+        if (!value.getClass().isArray())
+            return value;
+        if (value instanceof Object[])
+            return ((Object[]) value).clone();
+        if (value instanceof boolean[])
+            return ((boolean[]) value).clone();
+        if (value instanceof byte[])
+            return ((byte[]) value).clone();
+        if (value instanceof char[])
+            return ((char[]) value).clone();
+        if (value instanceof short[])
+            return ((short[]) value).clone();
+        if (value instanceof int[])
+            return ((int[]) value).clone();
+        if (value instanceof long[])
+            return ((long[]) value).clone();
+        if (value instanceof float[])
+            return ((float[]) value).clone();
+        return ((double[]) value).clone();
     }
 
-    private Object toType(Object value, Class<?> returnType) {
+    /**
+     * Convert the raw value of one member without building a proxy.
+     * Primitives are returned as their wrappers, and <code>Class</code> values can also be requested by name.
+     */
+    static <T> T value(Class<? extends Annotation> type, AnnotationInstance annotationInstance, String member, Class<T> valueType) {
+        Method method = MEMBERS.get(type).byName.get(member);
+        if (method == null)
+            throw new RuntimeException("no value '" + member + "' in " + annotationInstance);
+        Class<?> returnType = method.getReturnType();
+        boolean className = isClassName(returnType, valueType);
+        if (!className && !wrap(valueType).isAssignableFrom(wrap(returnType)))
+            throw new IllegalArgumentException("member " + member + " of " + type.getName()
+                + " is a " + returnType.getTypeName() + ", not a " + valueType.getTypeName());
+        Object value = toType(annotationInstance.value(member).value(), className ? valueType : returnType);
+        if (valueType.isPrimitive()) {
+            @SuppressWarnings("unchecked")
+            T primitive = (T) value;
+            return primitive;
+        }
+        return valueType.cast(value);
+    }
+
+    private static boolean isClassName(Class<?> returnType, Class<?> valueType) {
+        return (returnType.equals(Class.class) && valueType.equals(String.class))
+            || (returnType.equals(Class[].class) && valueType.equals(String[].class));
+    }
+
+    private static Class<?> wrap(Class<?> type) { return MethodType.methodType(type).wrap().returnType(); }
+
+    private static Object toType(Object value, Class<?> returnType) {
+        if (returnType.equals(String.class) && !(value instanceof String))
+            return className(value);
         if (returnType.isAnnotation())
             return proxy(AnnotationInstance.from(value));
         if (returnType.isEnum())
@@ -88,7 +304,7 @@ class AnnotationProxy {
         return value;
     }
 
-    private Object toArray(Class<?> componentType, Object[] values) {
+    private static Object toArray(Class<?> componentType, Object[] values) {
         Object array = Array.newInstance(componentType, values.length);
         for (int i = 0; i < values.length; i++)
             Array.set(array, i, toType(AnnotationValue.of(values[i]), componentType));
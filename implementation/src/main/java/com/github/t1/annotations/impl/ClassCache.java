@@ -0,0 +1,72 @@
+package com.github.t1.annotations.impl;
+
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+import static java.util.Collections.synchronizedMap;
+
+/**
+ * A value per class. A {@link ClassValue} stores it in the class itself, but that's only safe for the classes
+ * of our own class loader (or its children): a value stored in, e.g., <code>String.class</code> would keep
+ * the loader with its index alive for as long as the JDK lives. The classes of our parent class loaders
+ * live at least as long as we do, so their values go into a map that lives only as long as this cache.
+ * The classes of unrelated class loaders, e.g. of other deployments, may be unloaded before we are,
+ * so their values go into a map with weak keys; the values must not refer to the class, or it would never be unloaded.
+ */
+class ClassCache<V> {
+    private static final Object PARENT = new Object();
+    private static final Object UNRELATED = new Object();
+
+    private final ClassLoader classLoader;
+    private final Function<Class<?>, V> compute;
+    private final Map<Class<?>, V> parent = new ConcurrentHashMap<>();
+    private final Map<Class<?>, V> unrelated = synchronizedMap(new WeakHashMap<>());
+
+    private final ClassValue<Object> values = new ClassValue<Object>() {
+        @Override protected Object computeValue(Class<?> type) {
+            if (isOwned(type))
+                return compute.apply(type);
+            return isParent(type) ? PARENT : UNRELATED;
+        }
+    };
+
+    ClassCache(ClassLoader classLoader, Function<Class<?>, V> compute) {
+        this.classLoader = classLoader;
+        this.compute = compute;
+    }
+
+    V get(Class<?> type) {
+        Object value = values.get(type);
+        if (value == PARENT)
+            return get(parent, type);
+        if (value == UNRELATED)
+            return get(unrelated, type);
+        @SuppressWarnings("unchecked")
+        V owned = (V) value;
+        return owned;
+    }
+
+    private V get(Map<Class<?>, V> map, Class<?> type) {
+        V value = map.get(type);
+        return (value == null) ? map.computeIfAbsent(type, compute) : value;
+    }
+
+    private boolean isOwned(Class<?> type) {
+        for (ClassLoader loader = type.getClassLoader(); loader != null; loader = loader.getParent())
+            if (loader == classLoader)
+                return true;
+        return false;
+    }
+
+    private boolean isParent(Class<?> type) {
+        ClassLoader typeLoader = type.getClassLoader();
+        if (typeLoader == null) // the bootstrap class loader
+            return true;
+        for (ClassLoader loader = classLoader; loader != null; loader = loader.getParent())
+            if (loader == typeLoader)
+                return true;
+        return false;
+    }
+}
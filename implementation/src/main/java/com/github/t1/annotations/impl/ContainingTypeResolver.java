@@ -1,6 +1,7 @@
 package com.github.t1.annotations.impl;
 
 import com.github.t1.annotations.index.AnnotationInstance;
+import com.github.t1.annotations.index.AnnotationTarget;
 import com.github.t1.annotations.index.ClassInfo;
 import com.github.t1.annotations.index.Index;
 
@@ -30,4 +31,12 @@ class ContainingTypeResolver {
                 .filter(method -> method.canBeAdded(annotationType))
                 .forEach(method -> method.add(annotationInstance));
     }
+
+    /** Resolve the annotations of the containing class only to this one field or method */
+    void resolve(ClassInfo classInfo, AnnotationTarget member) {
+        classInfo.annotations()
+            .filter(annotationInstance -> annotationInstance.type().isExplicitlyAllowedOn(member.elementType()))
+            .filter(member::canBeAdded)
+            .forEach(member::add);
+    }
 }
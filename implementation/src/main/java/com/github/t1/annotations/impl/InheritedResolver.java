@@ -1,39 +1,168 @@
 package com.github.t1.annotations.impl;
 
 import com.github.t1.annotations.index.AnnotationInstance;
+import com.github.t1.annotations.index.AnnotationTarget;
 import com.github.t1.annotations.index.ClassInfo;
 import com.github.t1.annotations.index.Index;
 import com.github.t1.annotations.index.MethodInfo;
+import com.github.t1.annotations.index.MethodSignature;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
+import static java.util.Collections.emptyList;
+import static java.util.Collections.newSetFromMap;
+import static java.util.Collections.singletonList;
 import static java.util.stream.Collectors.toList;
 
+/**
+ * Resolves the annotations of super types. The results for the super types are memoized,
+ * so every class in a hierarchy is looked at only once, and hierarchies without annotations are skipped.
+ * The memos are only needed while resolving, so {@link #resolve()} drops them when it's done,
+ * and the {@link LazyResolver} {@link #clear() clears} them when everything is resolved.
+ * Not thread safe, i.e. the {@link LazyResolver} has to synchronize.
+ */
 public class InheritedResolver {
     private final Index index;
+    private final Map<ClassInfo, Boolean> annotatedClasses = new HashMap<>();
+    private final Map<ClassInfo, Boolean> annotatedMethods = new HashMap<>();
+    private final Map<ClassInfo, List<AnnotationInstance>> inheritedAnnotations = new HashMap<>();
+    private final Map<ClassInfo, Map<MethodSignature, Collection<MethodInfo>>> inheritedMethods = new HashMap<>();
 
     public InheritedResolver(Index index) { this.index = index; }
 
     public void resolve() {
-        index.allClasses().forEach(this::resolveFromSuperTypes);
+        try {
+            index.allClasses().forEach(classInfo -> {
+                resolveFromSuperTypes(classInfo);
+                if (hasAnnotatedMethods(classInfo))
+                    classInfo.methods().forEach(this::resolveFromSuperTypes);
+            });
+        } finally {
+            clear();
+        }
     }
 
-    private void resolveFromSuperTypes(ClassInfo classInfo) {
-        List<AnnotationInstance> annotations = classInfo.typeTree()
-            .flatMap(ClassInfo::annotations)
-            .distinct() // can already have been added to a super type
-            .collect(toList());
-        classInfo.replaceAnnotations(annotations);
+    void clear() {
+        annotatedClasses.clear();
+        annotatedMethods.clear();
+        inheritedAnnotations.clear();
+        inheritedMethods.clear();
+    }
+
+    /** Resolve only this target; fields are not inherited */
+    void resolve(AnnotationTarget target) {
+        if (target instanceof ClassInfo)
+            resolveFromSuperTypes((ClassInfo) target);
+        else if (target instanceof MethodInfo)
+            resolveFromSuperTypes((MethodInfo) target);
+    }
 
-        classInfo.methods().forEach(this::resolveFromSuperTypes);
+    private void resolveFromSuperTypes(ClassInfo classInfo) {
+        if (superTypes(classInfo).stream().noneMatch(this::hasAnnotations))
+            return; // nothing to inherit
+        classInfo.replaceAnnotations(inheritedAnnotations(classInfo));
     }
 
     private void resolveFromSuperTypes(MethodInfo methodInfo) {
-        List<AnnotationInstance> annotations = methodInfo.declaringClass().typeTree()
-            .flatMap(classInfo -> classInfo.findMethod(methodInfo.signature()))
-            .flatMap(MethodInfo::annotations)
-            .distinct() // can already have been added to a super type
+        Collection<MethodInfo> inherited = inheritedMethods(methodInfo.declaringClass(), methodInfo.methodSignature());
+        if (inherited.size() <= 1)
+            return; // nothing to inherit
+        List<AnnotationInstance> annotations = inherited.stream()
+            .flatMap(MethodInfo::declaredAnnotations)
             .collect(toList());
         methodInfo.replaceAnnotations(annotations);
     }
+
+    private boolean hasAnnotations(ClassInfo classInfo) {
+        Boolean annotated = annotatedClasses.get(classInfo);
+        if (annotated == null) {
+            annotated = classInfo.declaredAnnotations().findAny().isPresent()
+                || superTypes(classInfo).stream().anyMatch(this::hasAnnotations);
+            annotatedClasses.put(classInfo, annotated);
+        }
+        return annotated;
+    }
+
+    private boolean hasAnnotatedMethods(ClassInfo classInfo) {
+        Boolean annotated = annotatedMethods.get(classInfo);
+        if (annotated == null) {
+            annotated = classInfo.declaresAnnotatedMethods()
+                || superTypes(classInfo).stream().anyMatch(this::hasAnnotatedMethods);
+            annotatedMethods.put(classInfo, annotated);
+        }
+        return annotated;
+    }
+
+    /**
+     * The declared annotations of all types in the type tree. Like the {@link #inheritedMethods(ClassInfo, MethodSignature)},
+     * this merges the already computed annotations of the direct super types, which results in the order of the type tree.
+     */
+    private List<AnnotationInstance> inheritedAnnotations(ClassInfo classInfo) {
+        List<AnnotationInstance> inherited = inheritedAnnotations.get(classInfo);
+        if (inherited == null) {
+            List<ClassInfo> superTypes = superTypes(classInfo);
+            if (!classInfo.hasSuperClass()) { // not in the index, i.e. it has no type tree
+                inherited = emptyList();
+            } else if (superTypes.stream().noneMatch(this::hasAnnotations)) {
+                inherited = classInfo.declaredAnnotations().collect(toList());
+            } else {
+                // the declared annotations are cached, so the same annotation is the same instance on every path
+                Set<AnnotationInstance> seen = newSetFromMap(new IdentityHashMap<>());
+                List<AnnotationInstance> merged = new ArrayList<>();
+                classInfo.declaredAnnotations().forEach(annotation -> {
+                    if (seen.add(annotation))
+                        merged.add(annotation);
+                });
+                for (ClassInfo superType : superTypes)
+                    for (AnnotationInstance annotation : inheritedAnnotations(superType))
+                        if (seen.add(annotation))
+                            merged.add(annotation);
+                inherited = merged;
+            }
+            inheritedAnnotations.put(classInfo, inherited);
+        }
+        return inherited;
+    }
+
+    /**
+     * For every type in the type tree, the method that it {@link ClassInfo#findMethod(MethodSignature) finds};
+     * a class finds the methods it inherits, so they show up for several types in the type tree, but only once here.
+     * This merges the already computed methods of the direct super types, which results in the order of the type tree.
+     */
+    private Collection<MethodInfo> inheritedMethods(ClassInfo classInfo, MethodSignature signature) {
+        Map<MethodSignature, Collection<MethodInfo>> methods = inheritedMethods.computeIfAbsent(classInfo, c -> new HashMap<>());
+        Collection<MethodInfo> inherited = methods.get(signature);
+        if (inherited == null) {
+            List<ClassInfo> superTypes = superTypes(classInfo);
+            MethodInfo own = classInfo.method(signature).orElse(null);
+            if (superTypes.isEmpty() || !hasAnnotatedMethods(classInfo)) {
+                inherited = (own == null) ? emptyList() : singletonList(own);
+            } else {
+                Set<MethodInfo> merged = new LinkedHashSet<>();
+                if (own != null)
+                    merged.add(own);
+                for (ClassInfo superType : superTypes)
+                    merged.addAll(inheritedMethods(superType, signature));
+                inherited = merged;
+            }
+            methods.put(signature, inherited);
+        }
+        return inherited;
+    }
+
+    /** The interfaces, and then the super class, i.e. the order of the {@link ClassInfo#typeTree() type tree} */
+    private static List<ClassInfo> superTypes(ClassInfo classInfo) {
+        List<ClassInfo> superTypes = new ArrayList<>();
+        classInfo.interfaces().forEach(superTypes::add);
+        if (classInfo.hasSuperClass())
+            superTypes.add(classInfo.superClass());
+        return superTypes;
+    }
 }
@@ -0,0 +1,115 @@
+package com.github.t1.annotations.impl;
+
+import com.github.t1.annotations.impl.MixinResolver.Mixin;
+import com.github.t1.annotations.index.AnnotationTarget;
+import com.github.t1.annotations.index.ClassInfo;
+import com.github.t1.annotations.index.FieldInfo;
+import com.github.t1.annotations.index.Index;
+import com.github.t1.annotations.index.MethodInfo;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static java.util.Collections.emptyList;
+
+/**
+ * Resolves only the targets that are actually requested (and the targets they depend on), instead of the whole index.
+ * Every target goes through the same phases as with the eager resolvers, and remembers how far it got.
+ * Finding the stereotypes and mixins is still done for the whole index, as the targets can't know about them.
+ */
+class LazyResolver {
+    private static final int DECLARED = 0;
+    private static final int INHERITED = 1;
+    private static final int STEREOTYPES = 2;
+    private static final int MIXINS = 3;
+    private static final int CONTAINING_TYPE = 4;
+
+    private final Index index;
+    private final InheritedResolver inheritedResolver;
+    private final StereotypeResolver stereotypeResolver;
+    private final ContainingTypeResolver containingTypeResolver;
+
+    private final Map<AnnotationTarget, List<ClassInfo>> stereotypes = new IdentityHashMap<>();
+    private final Map<AnnotationTarget, List<Mixin>> mixins = new IdentityHashMap<>();
+    private final Map<AnnotationTarget, Integer> phases = new IdentityHashMap<>();
+
+    LazyResolver(Index index) {
+        this.index = index;
+        this.inheritedResolver = new InheritedResolver(index);
+        this.stereotypeResolver = new StereotypeResolver(index);
+        this.containingTypeResolver = new ContainingTypeResolver(index);
+
+        stereotypeResolver.stereotypeTypes().forEach(stereotypeType -> stereotypeResolver.targetsOf(stereotypeType)
+            .forEach(target -> stereotypes.computeIfAbsent(target, t -> new ArrayList<>()).add(stereotypeType)));
+        new MixinResolver(index).mixins()
+            .forEach(mixin -> mixins.computeIfAbsent(mixin.target, t -> new ArrayList<>()).add(mixin));
+    }
+
+    /** Resolve and {@link AnnotationTarget#freeze() freeze} the target, so it can be read without locking */
+    synchronized <T extends AnnotationTarget> T resolve(T target) {
+        resolve(target, CONTAINING_TYPE);
+        target.freeze();
+        return target;
+    }
+
+    /** Resolve all targets and {@link Index#freeze() freeze} the index, e.g. to find all targets of an annotation type */
+    synchronized void resolveAll() {
+        if (index.isFrozen())
+            return;
+        index.allClasses().forEach(classInfo -> {
+            resolve(classInfo);
+            classInfo.fields().forEach(this::resolve);
+            classInfo.methods().forEach(this::resolve);
+        });
+        // e.g. mixin targets that are not in the index
+        new ArrayList<>(mixins.keySet()).forEach(this::resolve);
+        index.freeze();
+        inheritedResolver.clear();
+    }
+
+    private void resolve(AnnotationTarget target, int phase) {
+        for (int next = phases.getOrDefault(target, DECLARED) + 1; next <= phase; next++) {
+            phases.put(target, next);
+            resolvePhase(target, next);
+        }
+    }
+
+    private void resolvePhase(AnnotationTarget target, int phase) {
+        switch (phase) {
+            case INHERITED:
+                inheritedResolver.resolve(target);
+                break;
+            case STEREOTYPES:
+                for (ClassInfo stereotypeType : stereotypes.getOrDefault(target, emptyList())) {
+                    resolve(stereotypeType, STEREOTYPES);
+                    stereotypeResolver.resolve(stereotypeType, target);
+                }
+                break;
+            case MIXINS:
+                for (Mixin mixin : mixins.getOrDefault(target, emptyList())) {
+                    resolve(mixin.source, STEREOTYPES);
+                    mixin.resolve();
+                }
+                break;
+            case CONTAINING_TYPE:
+                ClassInfo containingType = containingType(target);
+                if (containingType != null) {
+                    resolve(containingType, MIXINS);
+                    containingTypeResolver.resolve(containingType, target);
+                }
+                break;
+            default:
+                throw new IllegalArgumentException("unknown resolution phase " + phase);
+        }
+    }
+
+    private static ClassInfo containingType(AnnotationTarget target) {
+        if (target instanceof FieldInfo)
+            return ((FieldInfo) target).declaringClass();
+        if (target instanceof MethodInfo)
+            return ((MethodInfo) target).declaringClass();
+        return null;
+    }
+}
@@ -2,66 +2,83 @@ package com.github.t1.annotations.impl;
 
 import com.github.t1.annotations.MixinFor;
 import com.github.t1.annotations.index.AnnotationInstance;
+import com.github.t1.annotations.index.AnnotationTarget;
 import com.github.t1.annotations.index.ClassInfo;
 import com.github.t1.annotations.index.FieldInfo;
 import com.github.t1.annotations.index.Index;
 import com.github.t1.annotations.index.MethodInfo;
 
+import java.util.stream.Stream;
+
+import static java.util.function.Function.identity;
+
 class MixinResolver {
     private final Index index;
 
     MixinResolver(Index index) { this.index = index; }
 
     public void resolve() {
-        index.allAnnotationInstancesOfType(MixinFor.class).forEach(this::resolve);
+        mixins().forEach(Mixin::resolve);
+    }
+
+    /** All mixins in the order they have to be resolved; fails for mixins of fields or methods that don't exist */
+    Stream<Mixin> mixins() {
+        return index.allAnnotationInstancesOfType(MixinFor.class).flatMap(this::mixins);
     }
 
-    private void resolve(AnnotationInstance mixinAnnotation) {
+    private Stream<Mixin> mixins(AnnotationInstance mixinAnnotation) {
         ClassInfo mixinTarget = mixinAnnotation.value("value").classValue();
         ClassInfo mixinClass = (ClassInfo) mixinAnnotation.target();
-        if (mixinTarget.isAnnotationType()) {
-            resolveMixinAnnotations(mixinTarget, mixinClass);
-        } else {
-            resolveClassAnnotations(mixinTarget, mixinClass);
-            resolveFieldAnnotations(mixinTarget, mixinClass);
-            resolveMethodAnnotations(mixinTarget, mixinClass);
-        }
+        if (mixinTarget.isAnnotationType())
+            return mixinAnnotations(mixinTarget, mixinClass);
+        return Stream.of(
+            Stream.of(new Mixin(mixinClass, mixinTarget)),
+            fieldMixins(mixinTarget, mixinClass),
+            methodMixins(mixinTarget, mixinClass))
+            .flatMap(identity());
     }
 
-    private void resolveMixinAnnotations(ClassInfo mixinTarget, ClassInfo mixinClass) {
-        index.allAnnotationInstancesOfType(mixinTarget)
+    private Stream<Mixin> mixinAnnotations(ClassInfo mixinTarget, ClassInfo mixinClass) {
+        return index.allAnnotationInstancesOfType(mixinTarget)
             .map(annotationInstance -> (ClassInfo) annotationInstance.target())
-            .forEach(mixinTargetType -> resolveClassAnnotations(mixinTargetType, mixinClass));
-    }
-
-    private void resolveClassAnnotations(ClassInfo mixinTarget, ClassInfo mixinClass) {
-        mixinClass.annotations()
-            .filter(annotationInstance -> annotationInstance.type().isImplicitlyAllowedOn(mixinTarget.elementType()))
-            .filter(annotationInstance -> !annotationInstance.type().name().equals(MixinFor.class.getName()))
-            .forEach(mixinTarget::replace);
+            .map(mixinTargetType -> new Mixin(mixinClass, mixinTargetType));
     }
 
-    private void resolveFieldAnnotations(ClassInfo mixinTarget, ClassInfo mixinClass) {
-        mixinClass.fields().forEach(field -> {
+    private Stream<Mixin> fieldMixins(ClassInfo mixinTarget, ClassInfo mixinClass) {
+        return mixinClass.fields().map(field -> {
             FieldInfo targetField = mixinTarget.field(field.name())
                 .orElseThrow(() -> new IllegalArgumentException(mixinClass.name() + " mixes field " + field.name()
                     + " into " + mixinTarget + " but there is no such field"));
-            field.annotations()
-                .filter(annotationInstance -> annotationInstance.type().isImplicitlyAllowedOn(targetField.elementType()))
-                .forEach(targetField::replace);
+            return new Mixin(field, targetField);
         });
     }
 
-    private void resolveMethodAnnotations(ClassInfo mixinTarget, ClassInfo mixinClass) {
-        mixinClass.methods().forEach(method -> {
-            if (method.isDefaultConstructor() && method.hasNoAnnotations())
-                return;
-            MethodInfo targetMethod = mixinTarget.method(method.name(), method.parameterTypeNames())
-                .orElseThrow(() -> new IllegalArgumentException(mixinClass.name() + " mixes method " + method
-                    + " into " + mixinTarget + " but there is no such method"));
-            method.annotations()
-                .filter(annotationInstance -> annotationInstance.type().isImplicitlyAllowedOn(targetMethod.elementType()))
-                .forEach(targetMethod::replace);
-        });
+    private Stream<Mixin> methodMixins(ClassInfo mixinTarget, ClassInfo mixinClass) {
+        return mixinClass.methods()
+            .filter(method -> !(method.isDefaultConstructor() && method.hasNoAnnotations()))
+            .map(method -> {
+                MethodInfo targetMethod = mixinTarget.method(method.name(), method.parameterTypeNames())
+                    .orElseThrow(() -> new IllegalArgumentException(mixinClass.name() + " mixes method " + method
+                        + " into " + mixinTarget + " but there is no such method"));
+                return new Mixin(method, targetMethod);
+            });
+    }
+
+    /** The annotations of the <code>source</code> (a class, field, or method) replace those of the <code>target</code> */
+    static class Mixin {
+        final AnnotationTarget source;
+        final AnnotationTarget target;
+
+        private Mixin(AnnotationTarget source, AnnotationTarget target) {
+            this.source = source;
+            this.target = target;
+        }
+
+        void resolve() {
+            source.annotations()
+                .filter(annotationInstance -> annotationInstance.type().isImplicitlyAllowedOn(target.elementType()))
+                .filter(annotationInstance -> !annotationInstance.type().name().equals(MixinFor.class.getName()))
+                .forEach(target::replace);
+        }
     }
 }
@@ -1,53 +1,337 @@
 package com.github.t1.annotations.impl;
 
+import com.github.t1.annotations.AnnotationQuery;
 import com.github.t1.annotations.Annotations;
 import com.github.t1.annotations.AnnotationsLoader;
+import com.github.t1.annotations.index.AnnotationInstance;
 import com.github.t1.annotations.index.AnnotationTarget;
+import com.github.t1.annotations.index.ClassInfo;
+import com.github.t1.annotations.index.FieldInfo;
 import com.github.t1.annotations.index.Index;
+import com.github.t1.annotations.index.LoadedClasses;
+import com.github.t1.annotations.index.MethodInfo;
+import com.github.t1.annotations.index.MethodSignature;
 
 import java.lang.annotation.Annotation;
+import java.lang.ref.WeakReference;
+import java.lang.reflect.AnnotatedElement;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 import java.util.stream.Stream;
 
-import static com.github.t1.annotations.impl.Utils.toOptionalOrThrow;
+import static com.github.t1.annotations.index.LoadedClasses.contextClassLoader;
 import static com.github.t1.annotations.index.Utils.toArray;
+import static java.util.Collections.unmodifiableMap;
+import static java.util.concurrent.CompletableFuture.completedFuture;
+import static java.util.concurrent.CompletableFuture.supplyAsync;
+import static java.util.stream.Collectors.toList;
 
 public class PowerAnnotationsLoader extends AnnotationsLoader {
-    final Index index;
+    /** Set this system property to <code>true</code> to resolve only the targets that are actually requested */
+    public static final String LAZY = "power-annotations.lazy";
+
+    /**
+     * Set this system property to <code>true</code> to load and resolve the index in a background thread,
+     * so only the threads that request annotations before that is done have to wait.
+     */
+    public static final String ASYNC = "power-annotations.async";
+
+    private final CompletableFuture<Resolution> resolution;
 
     /** Used by the ServiceLoader */
     @SuppressWarnings("unused")
     public PowerAnnotationsLoader() {
-        this(Index.load());
+        this(Index::load, Boolean.getBoolean(ASYNC));
     }
 
     /** visible for testing: we need to load different index files */
     public PowerAnnotationsLoader(Index index) {
-        this.index = index;
-        resolve();
+        this(index, Boolean.getBoolean(LAZY));
+    }
+
+    public PowerAnnotationsLoader(Index index, boolean lazy) {
+        this.resolution = completedFuture(new Resolution(index, lazy));
+    }
+
+    /** visible for testing: we need to control when loading is done */
+    public PowerAnnotationsLoader(Supplier<Index> index, boolean async) {
+        boolean lazy = Boolean.getBoolean(LAZY);
+        this.resolution = async
+            ? supplyAsync(() -> new Resolution(index.get(), lazy), PowerAnnotationsLoader::startBackgroundThread)
+            : completedFuture(new Resolution(index.get(), lazy));
     }
 
-    private void resolve() {
+    private static void startBackgroundThread(Runnable runnable) {
+        Thread thread = new Thread(runnable, "power-annotations-loader");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /** Run all resolvers; this is also done at build time, to write a resolved index file */
+    public static void resolve(Index index) {
         new InheritedResolver(index).resolve();
         new StereotypeResolver(index).resolve();
         new MixinResolver(index).resolve();
         new ContainingTypeResolver(index).resolve();
     }
 
+    /** In lazy mode, this resolves all targets first */
+    @Override public Stream<AnnotatedElement> allTargetsAnnotatedWith(Class<? extends Annotation> type) {
+        Resolution resolution = resolution();
+        if (resolution.lazyResolver != null)
+            resolution.lazyResolver.resolveAll();
+        return resolution.index.allTargetsAnnotatedWith(type)
+            .map(PowerAnnotationsLoader::annotatedElement)
+            .distinct();
+    }
+
+    /** The members of a class in the index include those it inherits, but reflection only finds them in the super type */
+    private static AnnotatedElement annotatedElement(AnnotationTarget target) {
+        if (target instanceof ClassInfo)
+            return toClass(target.name());
+        if (target instanceof FieldInfo) {
+            FieldInfo fieldInfo = (FieldInfo) target;
+            Class<?> declaringClass = toClass(fieldInfo.declaringClass().name());
+            return typeTree(declaringClass)
+                .flatMap(type -> Stream.of(type.getDeclaredFields()))
+                .filter(field -> field.getName().equals(fieldInfo.name()))
+                .findFirst()
+                .orElseThrow(() -> new FieldNotFoundException(fieldInfo.name(), declaringClass));
+        }
+        MethodInfo methodInfo = (MethodInfo) target;
+        Class<?> declaringClass = toClass(methodInfo.declaringClass().name());
+        return typeTree(declaringClass)
+            .flatMap(type -> Stream.of(type.getDeclaredMethods()))
+            .filter(method -> MethodSignature.of(method.getName(), method.getParameterTypes()).equals(methodInfo.methodSignature()))
+            .findFirst()
+            .orElseThrow(() -> new MethodNotFoundException(declaringClass, methodInfo.name(), methodInfo.parameterTypeNames()));
+    }
+
+    /** The type, its interfaces, and its super class, recursively, in the order of the {@link ClassInfo#typeTree()} */
+    private static Stream<Class<?>> typeTree(Class<?> type) {
+        Stream<Class<?>> superTypes = Stream.concat(Stream.of(type.getInterfaces()),
+            (type.getSuperclass() == null) ? Stream.empty() : Stream.of(type.getSuperclass()));
+        return Stream.concat(Stream.of(type), superTypes.flatMap(PowerAnnotationsLoader::typeTree));
+    }
+
+    private static Class<?> toClass(String className) {
+        try {
+            return LoadedClasses.load(className);
+        } catch (ClassNotFoundException e) {
+            throw new RuntimeException("can't load annotated class " + className, e);
+        }
+    }
 
     @Override public Annotations onType(Class<?> type) {
-        return new PowerAnnotations(index.classInfo(type));
+        return handles.get(type).onType(type);
+    }
+
+    @Override public Annotations onField(Field field) {
+        return onField(field.getDeclaringClass(), field.getName());
+    }
+
+    @Override public Annotations onMethod(Method method) {
+        return handles.get(method.getDeclaringClass()).onMethod(method);
+    }
+
+    @Override public Map<String, Annotations> onFields(Class<?> type) {
+        return handles.get(type).onFields(type);
+    }
+
+    @Override public Map<String, Annotations> onMethods(Class<?> type) {
+        return handles.get(type).onMethods(type);
+    }
+
+    /**
+     * The {@link Annotations} for a class and its members, so looking them up again is a single cache hit.
+     * The {@link ClassCache} stores them in the class itself, so they don't prevent the class from being unloaded,
+     * but only if that class doesn't outlive us.
+     */
+    private final ClassCache<Handles> handles = new ClassCache<>(contextClassLoader(), type -> new Handles());
+
+    /** Doesn't refer to the class or its members, so the {@link ClassCache} can hold it in a weak map */
+    private class Handles {
+        private volatile PowerAnnotations typeAnnotations;
+        private final Map<String, PowerAnnotations> fieldAnnotations = new ConcurrentHashMap<>();
+        private final Map<MethodSignature, PowerAnnotations> methodAnnotations = new ConcurrentHashMap<>();
+
+        private volatile Map<String, Annotations> allFieldAnnotations;
+        private volatile Map<String, Annotations> allMethodAnnotations;
+
+        private PowerAnnotations onType(Class<?> type) {
+            PowerAnnotations annotations = typeAnnotations;
+            if (annotations == null)
+                typeAnnotations = annotations = lookUpType(type);
+            return annotations;
+        }
+
+        private PowerAnnotations onField(Class<?> type, String fieldName) {
+            PowerAnnotations annotations = fieldAnnotations.get(fieldName);
+            if (annotations == null)
+                annotations = fieldAnnotations.computeIfAbsent(fieldName, name -> lookUpField(type, name));
+            return annotations;
+        }
+
+        /** Resolve all fields in one pass over the type tree, and share them with the single field lookups */
+        private Map<String, Annotations> onFields(Class<?> type) {
+            Map<String, Annotations> annotations = allFieldAnnotations;
+            if (annotations == null) {
+                Resolution resolution = resolution();
+                Map<String, Annotations> map = new LinkedHashMap<>();
+                resolution.index.classInfo(type).fields().forEach(field -> map.computeIfAbsent(field.name(), name ->
+                    fieldAnnotations.computeIfAbsent(name, n -> new PowerAnnotations(resolution.resolved(field)))));
+                allFieldAnnotations = annotations = unmodifiableMap(map);
+            }
+            return annotations;
+        }
+
+        private Map<String, Annotations> onMethods(Class<?> type) {
+            Map<String, Annotations> annotations = allMethodAnnotations;
+            if (annotations == null) {
+                Resolution resolution = resolution();
+                Map<String, Annotations> map = new LinkedHashMap<>();
+                resolution.index.classInfo(type).methods()
+                    .filter(method -> !method.name().startsWith("<")) // static initializers; constructors are not methods
+                    .filter(method -> !method.isSynthetic())
+                    .forEach(method -> map.put(method.signature(), new PowerAnnotations(resolution.resolved(method))));
+                allMethodAnnotations = annotations = unmodifiableMap(map);
+            }
+            return annotations;
+        }
+
+        private PowerAnnotations onMethod(Method method) {
+            return onMethod(method.getDeclaringClass(), method.getName(), method.getParameterTypes());
+        }
+
+        private PowerAnnotations onMethod(Class<?> type, String methodName, Class<?>... argTypes) {
+            MethodSignature signature = MethodSignature.of(methodName, argTypes);
+            PowerAnnotations annotations = methodAnnotations.get(signature);
+            if (annotations == null)
+                annotations = methodAnnotations.computeIfAbsent(signature, s -> lookUpMethod(type, methodName, argTypes));
+            return annotations;
+        }
+    }
+
+    private PowerAnnotations lookUpType(Class<?> type) {
+        Resolution resolution = resolution();
+        return new PowerAnnotations(resolution.resolved(resolution.index.classInfo(type)));
     }
 
     @Override public Annotations onField(Class<?> type, String fieldName) {
-        return new PowerAnnotations(index.classInfo(type).field(fieldName)
-            .orElseThrow(() -> new FieldNotFoundException(fieldName, type)));
+        return handles.get(type).onField(type, fieldName);
+    }
+
+    private PowerAnnotations lookUpField(Class<?> type, String fieldName) {
+        Resolution resolution = resolution();
+        return new PowerAnnotations(resolution.resolved(resolution.index.classInfo(type).field(fieldName)
+            .orElseThrow(() -> new FieldNotFoundException(fieldName, type))));
     }
 
     @Override public Annotations onMethod(Class<?> type, String methodName, Class<?>... argTypes) {
-        String[] argTypeNames = Stream.of(argTypes).map(Class::getName).collect(toArray(String.class));
-        return new PowerAnnotations(index.classInfo(type).method(methodName, argTypeNames)
-            .orElseThrow(() -> new MethodNotFoundException(type, methodName, argTypeNames)));
+        return handles.get(type).onMethod(type, methodName, argTypes);
+    }
+
+    private PowerAnnotations lookUpMethod(Class<?> type, String methodName, Class<?>... argTypes) {
+        Resolution resolution = resolution();
+        return new PowerAnnotations(resolution.resolved(resolution.index.classInfo(type).method(methodName, argTypes)
+            .orElseThrow(() -> new MethodNotFoundException(type, methodName,
+                Stream.of(argTypes).map(Class::getName).collect(toArray(String.class))))));
+    }
+
+    @Override public <T extends Annotation> AnnotationQuery<T> query(Class<T> type) {
+        @SuppressWarnings("unchecked")
+        AnnotationQuery<T> query = (AnnotationQuery<T>) queries.get(type);
+        return query;
+    }
+
+    private final AtomicInteger nextQueryId = new AtomicInteger();
+
+    /**
+     * One query per annotation type, so the ids and the slots in the {@link PowerAnnotations} don't grow.
+     * Like the {@link #handles}, queries for, e.g., <code>Deprecated</code> must not be stored in the class.
+     */
+    private final ClassCache<PowerQuery<?>> queries = new ClassCache<>(contextClassLoader(),
+        type -> new PowerQuery<>(type.asSubclass(Annotation.class), nextQueryId.getAndIncrement()));
+
+    /**
+     * The type is only weakly referenced, so the {@link ClassCache} can hold the query in a weak map;
+     * whoever uses the query refers to the type, so it's not unloaded before that.
+     */
+    private class PowerQuery<T extends Annotation> implements AnnotationQuery<T> {
+        private final WeakReference<Class<T>> type;
+        private final int id;
+
+        private PowerQuery(Class<T> type, int id) {
+            this.type = new WeakReference<>(type);
+            this.id = id;
+        }
+
+        @Override public Class<T> type() { return type.get(); }
+
+        @Override public T on(Class<?> target) { return handles.get(target).onType(target).getOrNull(id, type()); }
+
+        @Override public T on(Field field) {
+            return handles.get(field.getDeclaringClass()).onField(field.getDeclaringClass(), field.getName()).getOrNull(id, type());
+        }
+
+        @Override public T on(Method method) { return handles.get(method.getDeclaringClass()).onMethod(method).getOrNull(id, type()); }
+
+        @Override public String toString() { return "query #" + id + " for " + type().getName(); }
+    }
+
+    /** Wait for the background loading, if it's not done, yet */
+    private Resolution resolution() {
+        try {
+            return resolution.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException)
+                throw (RuntimeException) e.getCause();
+            throw e;
+        }
+    }
+
+    /**
+     * The index, either with all annotations resolved and {@link Index#freeze() frozen},
+     * or with the lazy resolver to resolve and freeze the targets on demand.
+     */
+    private static class Resolution {
+        private final Index index;
+        /** <code>null</code> when all annotations are already resolved */
+        private final LazyResolver lazyResolver;
+
+        private Resolution(Index index, boolean lazy) {
+            this.index = index;
+            if (lazy && !index.isResolved()) {
+                this.lazyResolver = new LazyResolver(index);
+            } else {
+                this.lazyResolver = null;
+                if (!index.isResolved())
+                    resolve(index);
+                index.freeze();
+            }
+        }
+
+        /** The targets of a frozen index are already resolved, so we only have to freeze them on first use */
+        private AnnotationTarget resolved(AnnotationTarget target) {
+            if (target.isFrozen())
+                return target;
+            if (lazyResolver == null) {
+                target.freeze();
+                return target;
+            }
+            return lazyResolver.resolve(target);
+        }
     }
 
 
@@ -56,21 +340,105 @@ public class PowerAnnotationsLoader extends AnnotationsLoader {
 
         public PowerAnnotations(AnnotationTarget annotationTarget) { this.annotationTarget = annotationTarget; }
 
+        private static final Object[] NO_SLOTS = new Object[0];
+        private static final Object NONE = new Object();
+        private static final Object AMBIGUOUS = new Object();
+
+        /** The results of the {@link PowerQuery queries}, indexed by their id */
+        private volatile Object[] slots = NO_SLOTS;
+
+        private <T extends Annotation> T getOrNull(int id, Class<T> type) {
+            Object[] slots = this.slots;
+            Object value = (id < slots.length) ? slots[id] : null;
+            if (value == null)
+                value = store(id, slotValue(type));
+            if (value == NONE)
+                return null;
+            if (value == AMBIGUOUS)
+                return getOrNull(type); // throws
+            return type.cast(value);
+        }
+
+        private Object slotValue(Class<? extends Annotation> type) {
+            List<AnnotationInstance> instances = annotationTarget.getAnnotations(type.getName());
+            switch (instances.size()) {
+                case 0:
+                    return NONE;
+                case 1:
+                    return AnnotationProxy.proxy(instances.get(0));
+                default:
+                    return AMBIGUOUS;
+            }
+        }
+
+        /** Copy on write, so reading needs no lock */
+        private synchronized Object store(int id, Object value) {
+            Object[] copy = Arrays.copyOf(slots, Math.max(slots.length, id + 1));
+            copy[id] = value;
+            this.slots = copy;
+            return value;
+        }
+
         @Override public Stream<Annotation> all() {
             return annotationTarget.annotations().map(AnnotationProxy::proxy);
         }
 
         @Override public <T extends Annotation> Optional<T> get(Class<T> type) {
-            return all(type)
-                .collect(toOptionalOrThrow(list ->
-                    new PowerAnnotationsAmbiguousAnnotationResolutionException(type, annotationTarget, list)));
+            List<AnnotationInstance> instances = annotationTarget.getAnnotations(type.getName());
+            switch (instances.size()) {
+                case 0:
+                    return Optional.empty();
+                case 1:
+                    return Optional.of(type.cast(AnnotationProxy.proxy(instances.get(0))));
+                default:
+                    throw ambiguous(type, instances);
+            }
         }
 
         @Override public <T extends Annotation> Stream<T> all(Class<T> type) {
-            return annotationTarget.annotations()
-                .filter(instance -> instance.typeName().equals(type.getName()))
+            return annotationTarget.getAnnotations(type.getName()).stream()
                 .map(AnnotationProxy::proxy)
                 .map(type::cast);
         }
+
+        @Override public boolean isPresent(Class<? extends Annotation> type) {
+            return !annotationTarget.getAnnotations(type.getName()).isEmpty();
+        }
+
+        @Override public <T extends Annotation> T getOrNull(Class<T> type) {
+            List<AnnotationInstance> instances = annotationTarget.getAnnotations(type.getName());
+            switch (instances.size()) {
+                case 0:
+                    return null;
+                case 1:
+                    return type.cast(AnnotationProxy.proxy(instances.get(0)));
+                default:
+                    throw ambiguous(type, instances);
+            }
+        }
+
+        @Override public <T extends Annotation> void forEach(Class<T> type, Consumer<? super T> action) {
+            List<AnnotationInstance> instances = annotationTarget.getAnnotations(type.getName());
+            // no iterator
+            for (int i = 0; i < instances.size(); i++)
+                action.accept(type.cast(AnnotationProxy.proxy(instances.get(i))));
+        }
+
+        @Override public <T> T value(Class<? extends Annotation> type, String member, Class<T> valueType) {
+            List<AnnotationInstance> instances = annotationTarget.getAnnotations(type.getName());
+            switch (instances.size()) {
+                case 0:
+                    return null;
+                case 1:
+                    return AnnotationProxy.value(type, instances.get(0), member, valueType);
+                default:
+                    throw ambiguous(type, instances);
+            }
+        }
+
+        private PowerAnnotationsAmbiguousAnnotationResolutionException ambiguous(Class<? extends Annotation> type, List<AnnotationInstance> instances) {
+            return new PowerAnnotationsAmbiguousAnnotationResolutionException(type, annotationTarget,
+                instances.stream().map(AnnotationProxy::proxy).collect(toList()));
+        }
     }
 }
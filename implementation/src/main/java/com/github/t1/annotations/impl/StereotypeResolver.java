@@ -7,56 +7,87 @@ import com.github.t1.annotations.index.Index;
 
 import java.lang.annotation.Retention;
 import java.lang.annotation.Target;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Stream;
 
 import static java.util.Comparator.comparing;
+import static java.util.stream.Collectors.joining;
 import static java.util.stream.Collectors.toList;
 
+/**
+ * The stereotypes are a graph: the annotation types marked as <code>Stereotype</code>, and the stereotypes they are
+ * annotated with. We build it only once, with the levels memoized, and fail if there is a cycle.
+ */
 class StereotypeResolver implements AnnotationResolver {
     private final Index index;
+    private final Map<ClassInfo, Integer> levels = new HashMap<>();
+    private final Map<ClassInfo, List<AnnotationInstance>> resolvableAnnotations = new HashMap<>();
+    private List<ClassInfo> stereotypeTypes;
 
     StereotypeResolver(Index index) { this.index = index; }
 
     @Override public void resolve() {
-        index.annotationTypes()
-            .filter(StereotypeResolver::isStereotype)
-            .sorted(comparing(StereotypeResolver::stereotypeLevel) // resolve indirect stereotypes first
-                .thenComparing(ClassInfo::name)) // for more control in tests
-            .forEach(this::resolve);
+        stereotypeTypes().forEach(stereotypeType -> targetsOf(stereotypeType)
+            .forEach(target -> resolve(stereotypeType, target)));
     }
 
-    private static boolean isStereotype(ClassInfo classInfo) {
-        return classInfo.annotations()
-            .map(AnnotationInstance::typeName)
-            .anyMatch(StereotypeResolver::isStereotypeName);
+    /** All stereotypes in the order they have to be resolved */
+    Stream<ClassInfo> stereotypeTypes() {
+        if (stereotypeTypes == null) {
+            List<ClassInfo> list = index.annotationTypes()
+                .filter(ClassInfo::isStereotype)
+                .collect(toList());
+            list.forEach(stereotypeType -> stereotypeLevel(stereotypeType, new ArrayList<>()));
+            list.sort(comparing((ClassInfo stereotypeType) -> levels.get(stereotypeType)) // resolve indirect stereotypes first
+                .thenComparing(ClassInfo::name)); // for more control in tests
+            stereotypeTypes = list;
+        }
+        return stereotypeTypes.stream();
     }
 
-    private static boolean isStereotypeName(String typeName) {
-        return typeName.endsWith(".Stereotype");
+    Stream<AnnotationTarget> targetsOf(ClassInfo stereotypeType) {
+        return index.allAnnotationInstancesOfType(stereotypeType).map(AnnotationInstance::target);
     }
 
-    private static int stereotypeLevel(ClassInfo stereotypeType) {
-        return stereotypeType.annotations()
-            .map(AnnotationInstance::type)
-            .filter(StereotypeResolver::isStereotype)
-            .map(StereotypeResolver::stereotypeLevel)
-            .max(Integer::compareTo)
-            .map(i -> i + 1)
-            .orElse(0);
+    /** One more than the highest level of the stereotypes this stereotype is annotated with */
+    private int stereotypeLevel(ClassInfo stereotypeType, List<ClassInfo> path) {
+        Integer level = levels.get(stereotypeType);
+        if (level != null)
+            return level;
+        if (path.contains(stereotypeType))
+            throw new IllegalStateException("stereotype cycle: " + cycle(path, stereotypeType));
+        path.add(stereotypeType);
+        int max = -1;
+        for (AnnotationInstance annotation : stereotypeType.getAnnotations()) {
+            ClassInfo annotationType = annotation.type();
+            if (annotationType.isStereotype() && !annotationType.equals(stereotypeType)) // e.g. like @Documented is @Documented
+                max = Math.max(max, stereotypeLevel(annotationType, path));
+        }
+        path.remove(path.size() - 1);
+        levels.put(stereotypeType, max + 1);
+        return max + 1;
     }
 
-    private void resolve(ClassInfo stereotypeType) {
-        index.allAnnotationInstancesOfType(stereotypeType)
-            .forEach(annotationInstance -> resolve(stereotypeType, annotationInstance.target()));
+    private static String cycle(List<ClassInfo> path, ClassInfo stereotypeType) {
+        return Stream.concat(path.subList(path.indexOf(stereotypeType), path.size()).stream(), Stream.of(stereotypeType))
+            .map(ClassInfo::name)
+            .collect(joining(" -> "));
     }
 
-    private void resolve(ClassInfo stereotypeType, AnnotationTarget target) {
-        stereotypeType.annotations()
+    /**
+     * Apply a stereotype to a target. The annotations of the stereotype are collected only once, when it's applied first;
+     * as the stereotypes are resolved by level, the stereotypes it is annotated with are already resolved then.
+     */
+    void resolve(ClassInfo stereotypeType, AnnotationTarget target) {
+        List<AnnotationInstance> annotations = resolvableAnnotations.computeIfAbsent(stereotypeType, type -> type.annotations()
             .filter(StereotypeResolver::shouldBeResolved)
-            .filter(target::canBeAdded)
-            // .peek(instance -> System.out.println("add " + instance + " from " + stereotypeType + " to " + target))
-            .forEach(target::add);
+            .collect(toList()));
+        for (AnnotationInstance annotation : annotations)
+            if (target.canBeAdded(annotation))
+                target.add(annotation);
     }
 
     private static boolean shouldBeResolved(AnnotationInstance annotation) {
@@ -64,6 +95,10 @@ class StereotypeResolver implements AnnotationResolver {
             && !DO_NON_RESOLVE.contains(annotation.typeName());
     }
 
+    private static boolean isStereotypeName(String typeName) {
+        return typeName.endsWith(".Stereotype");
+    }
+
     private static final List<String> DO_NON_RESOLVE = Stream.of(Retention.class, Target.class)
         .map(Class::getTypeName)
         .collect(toList());
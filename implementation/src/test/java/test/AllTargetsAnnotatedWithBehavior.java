@@ -0,0 +1,82 @@
+package test;
+
+import com.github.t1.annotations.MixinFor;
+import com.github.t1.annotations.Stereotype;
+import com.github.t1.annotations.impl.PowerAnnotationsLoader;
+import com.github.t1.annotations.index.Index;
+import org.junit.jupiter.api.Test;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+import java.lang.reflect.AnnotatedElement;
+import java.util.stream.Stream;
+
+import static java.lang.annotation.ElementType.FIELD;
+import static java.lang.annotation.ElementType.METHOD;
+import static java.lang.annotation.ElementType.TYPE;
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+import static org.assertj.core.api.BDDAssertions.then;
+
+class AllTargetsAnnotatedWithBehavior {
+    @Retention(RUNTIME)
+    @Target({TYPE, FIELD, METHOD})
+    public @interface Marker {}
+
+    @Retention(RUNTIME)
+    public @interface UnusedMarker {}
+
+    @Stereotype
+    @Retention(RUNTIME)
+    @Marker
+    public @interface MarkerStereotype {}
+
+    @MarkerStereotype
+    static class StereotypedClass {}
+
+    @SuppressWarnings("unused")
+    static class MixinTarget {
+        String field;
+    }
+
+    @SuppressWarnings("unused")
+    @MixinFor(MixinTarget.class)
+    static class MixinTargetMixin {
+        @Marker String field;
+    }
+
+    @SuppressWarnings("unused")
+    static class AnnotatedMethod {
+        @Marker void method(long l, Object[][] objects) {}
+    }
+
+    @Test void shouldFindAllResolvedTargets() throws Exception {
+        PowerAnnotationsLoader loader = new PowerAnnotationsLoader(Index.load(), false);
+
+        thenFoundMarkerTargets(loader.allTargetsAnnotatedWith(Marker.class));
+    }
+
+    @Test void shouldFindAllLazilyResolvedTargets() throws Exception {
+        PowerAnnotationsLoader loader = new PowerAnnotationsLoader(Index.load(), true);
+
+        thenFoundMarkerTargets(loader.allTargetsAnnotatedWith(Marker.class));
+        then(loader.onField(MixinTarget.class, "field").isPresent(Marker.class)).isTrue();
+    }
+
+    @Test void shouldFindOnlyTargetsOfRequestedType() {
+        PowerAnnotationsLoader loader = new PowerAnnotationsLoader(Index.load(), false);
+
+        then(loader.allTargetsAnnotatedWith(Retention.class).filter(target -> target.toString().contains("test.All")))
+            .containsOnly(Marker.class, UnusedMarker.class, MarkerStereotype.class);
+        then(loader.allTargetsAnnotatedWith(UnusedMarker.class)).isEmpty();
+    }
+
+    private void thenFoundMarkerTargets(Stream<AnnotatedElement> targets) throws Exception {
+        then(targets)
+            .containsExactlyInAnyOrder(
+                MarkerStereotype.class,
+                StereotypedClass.class,
+                MixinTarget.class.getDeclaredField("field"),
+                MixinTargetMixin.class.getDeclaredField("field"),
+                AnnotatedMethod.class.getDeclaredMethod("method", long.class, Object[][].class));
+    }
+}
@@ -0,0 +1,58 @@
+package test;
+
+import com.github.t1.annotations.Annotations;
+import com.github.t1.annotations.impl.PowerAnnotationsLoader;
+import com.github.t1.annotations.index.Index;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.catchThrowable;
+import static org.assertj.core.api.BDDAssertions.then;
+
+class AsyncLoadBehavior {
+    private final CountDownLatch loading = new CountDownLatch(1);
+    private final CountDownLatch released = new CountDownLatch(1);
+
+    private Index load() {
+        loading.countDown();
+        try {
+            released.await();
+        } catch (InterruptedException e) {
+            throw new RuntimeException(e);
+        }
+        return Index.load();
+    }
+
+    @Test void shouldLoadInBackground() throws Exception {
+        PowerAnnotationsLoader loader = new PowerAnnotationsLoader(this::load, true);
+        then(loading.await(10, TimeUnit.SECONDS)).describedAs("started loading").isTrue();
+
+        CompletableFuture<Annotations> query = CompletableFuture.supplyAsync(() -> loader.onType(SomeReflectionClass.class));
+        Thread.sleep(50);
+        then(query).describedAs("waits for the loading").isNotDone();
+
+        released.countDown();
+        Annotations annotations = query.get(10, TimeUnit.SECONDS);
+        then(annotations.get(SomeAnnotation.class)).hasValueSatisfying(annotation ->
+            then(annotation.value()).isEqualTo("some-reflection-class"));
+    }
+
+    @Test void shouldThrowBackgroundLoadingFailureOnQuery() {
+        PowerAnnotationsLoader loader = new PowerAnnotationsLoader(() -> {
+            throw new RuntimeException("can't load");
+        }, true);
+
+        Throwable throwable = catchThrowable(() -> loader.onType(SomeReflectionClass.class));
+
+        then(throwable).hasMessage("can't load");
+    }
+
+    @Test void shouldWarmUp() {
+        Annotations.warmUp();
+
+        then(Annotations.on(SomeReflectionClass.class).get(SomeAnnotation.class)).isPresent();
+    }
+}
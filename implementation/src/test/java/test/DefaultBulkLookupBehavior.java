@@ -0,0 +1,82 @@
+package test;
+
+import com.github.t1.annotations.Annotations;
+import com.github.t1.annotations.AnnotationsLoader;
+import com.github.t1.annotations.impl.PowerAnnotationsLoader;
+import com.github.t1.annotations.index.Index;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static java.util.stream.Collectors.toList;
+import static org.assertj.core.api.Assertions.catchThrowable;
+import static org.assertj.core.api.BDDAssertions.then;
+
+/** The default implementations of the bulk lookups, for loaders that only implement the single lookups */
+class DefaultBulkLookupBehavior {
+    private static final PowerAnnotationsLoader POWER = new PowerAnnotationsLoader(Index.load(), false);
+
+    private final AnnotationsLoader loader = new AnnotationsLoader() {
+        @Override public Annotations onType(Class<?> type) { return POWER.onType(type); }
+
+        @Override public Annotations onField(Class<?> type, String fieldName) { return POWER.onField(type, fieldName); }
+
+        @Override public Annotations onMethod(Class<?> type, String methodName, Class<?>... argTypes) {
+            return POWER.onMethod(type, methodName, argTypes);
+        }
+    };
+
+    public interface Base {
+        @SomeAnnotation("base-method")
+        void baseMethod(String[] args);
+    }
+
+    @SuppressWarnings("unused")
+    public static class Super implements Base {
+        @SomeAnnotation("super-field") String field;
+        @SomeAnnotation("super-only-field") int superOnly;
+
+        @Override public void baseMethod(String[] args) {}
+
+        @SomeAnnotation("super-method") public void method(int i) {}
+    }
+
+    @SuppressWarnings("unused")
+    public static class Sub extends Super {
+        @SomeAnnotation("sub-field") String field;
+
+        @Override public void method(int i) {}
+
+        public void other() {}
+    }
+
+    @Test void shouldGetAllFieldsOfClassAndSuperClasses() {
+        Map<String, Annotations> fields = loader.onFields(Sub.class);
+
+        then(fields).containsOnlyKeys("field", "superOnly");
+        then(values(fields.get("field"))).containsExactly("sub-field");
+        then(values(fields.get("superOnly"))).containsExactly("super-only-field");
+    }
+
+    @Test void shouldGetAllMethodsOfClassAndSuperTypes() {
+        Map<String, Annotations> methods = loader.onMethods(Sub.class);
+
+        then(methods).containsOnlyKeys("method(int)", "other()", "baseMethod(java.lang.String[])");
+        then(values(methods.get("method(int)"))).isEqualTo(values(POWER.onMethod(Sub.class, "method", int.class)));
+        then(values(methods.get("baseMethod(java.lang.String[])")))
+            .isEqualTo(values(POWER.onMethod(Super.class, "baseMethod", String[].class)));
+        then(values(methods.get("other()"))).isEmpty();
+    }
+
+    @Test void shouldFailToFindAllTargetsAnnotatedWith() {
+        Throwable throwable = catchThrowable(() -> loader.allTargetsAnnotatedWith(SomeAnnotation.class));
+
+        then(throwable).isInstanceOf(UnsupportedOperationException.class)
+            .hasMessageEndingWith(" can't find all targets annotated with " + SomeAnnotation.class.getName());
+    }
+
+    private static List<String> values(Annotations annotations) {
+        return annotations.all(SomeAnnotation.class).map(SomeAnnotation::value).collect(toList());
+    }
+}
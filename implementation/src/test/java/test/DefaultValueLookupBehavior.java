@@ -0,0 +1,57 @@
+package test;
+
+import com.github.t1.annotations.Annotations;
+import org.junit.jupiter.api.Test;
+
+import java.lang.annotation.Annotation;
+import java.lang.annotation.Retention;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+import static org.assertj.core.api.Assertions.catchThrowable;
+import static org.assertj.core.api.BDDAssertions.then;
+
+/** The default implementation of the member value lookup, for annotations that don't implement it */
+class DefaultValueLookupBehavior {
+    @Retention(RUNTIME)
+    public @interface Values {
+        int number();
+
+        Class<?> type();
+    }
+
+    @Values(number = 42, type = String.class)
+    static class Annotated {}
+
+    private final Annotations annotations = new Annotations() {
+        @Override public Stream<Annotation> all() { return Stream.of(Annotated.class.getAnnotations()); }
+
+        @Override public <T extends Annotation> Optional<T> get(Class<T> type) {
+            return Optional.ofNullable(Annotated.class.getAnnotation(type));
+        }
+
+        @Override public <T extends Annotation> Stream<T> all(Class<T> type) {
+            return Stream.of(Annotated.class.getAnnotationsByType(type));
+        }
+    };
+
+    @Test void shouldGetPrimitiveValue() {
+        Integer value = annotations.value(Values.class, "number", int.class);
+
+        then(value).isEqualTo(42);
+    }
+
+    @Test void shouldGetClassValueAsName() {
+        String value = annotations.value(Values.class, "type", String.class);
+
+        then(value).isEqualTo(String.class.getName());
+    }
+
+    @Test void shouldFailToGetValueAsWrongType() {
+        Throwable throwable = catchThrowable(() -> annotations.value(Values.class, "number", String.class));
+
+        then(throwable).isInstanceOf(IllegalArgumentException.class)
+            .hasMessage("member number of " + Values.class.getName() + " is a int, not a java.lang.String");
+    }
+}
@@ -25,4 +25,14 @@ class FailingLoadBehavior {
             .hasRootCauseInstanceOf(IllegalArgumentException.class)
             .hasRootCauseMessage("Not a jandex index");
     }
+
+    @Test void shouldFailToLoadInvalidResolvedIndexInputStream() throws Exception {
+        FileInputStream inputStream = new FileInputStream("pom.xml");
+
+        Throwable throwable = catchThrowable(() -> Index.fromResolved(inputStream));
+
+        then(throwable)
+            .hasRootCauseInstanceOf(IllegalArgumentException.class)
+            .hasRootCauseMessage("Not a resolved power-annotations index");
+    }
 }
@@ -0,0 +1,84 @@
+package test;
+
+import com.github.t1.annotations.impl.PowerAnnotationsLoader;
+import com.github.t1.annotations.index.Index;
+import org.junit.jupiter.api.Test;
+
+import java.lang.annotation.Annotation;
+import java.lang.annotation.Retention;
+import java.lang.ref.WeakReference;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Paths;
+import java.util.function.Consumer;
+
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+
+import static org.assertj.core.api.BDDAssertions.then;
+
+/**
+ * Classes of the JDK or of parent class loaders outlive the loader, so they must not hold on to it;
+ * and the loader must not hold on to the classes of unrelated class loaders, e.g. of other deployments.
+ */
+class LoaderLeakBehavior {
+    public static class Unrelated {}
+
+    @Retention(RUNTIME)
+    public @interface UnrelatedAnnotation {}
+
+    private final PowerAnnotationsLoader longLived = new PowerAnnotationsLoader(Index.load(), false);
+
+    @Test void shouldCollectLoaderAfterLookingUpJdkType() throws InterruptedException {
+        WeakReference<PowerAnnotationsLoader> loader = useAndForget(it -> it.onType(String.class));
+
+        then(isCollected(loader)).describedAs("loader collected").isTrue();
+    }
+
+    @Test void shouldCollectLoaderAfterQueryingJdkAnnotation() throws InterruptedException {
+        WeakReference<PowerAnnotationsLoader> loader = useAndForget(it -> it.query(Deprecated.class).on(String.class));
+
+        then(isCollected(loader)).describedAs("loader collected").isTrue();
+    }
+
+    @Test void shouldCollectUnrelatedClassLoaderAfterLookingUpItsType() throws Exception {
+        WeakReference<ClassLoader> classLoader = useUnrelated(Unrelated.class, type -> longLived.onType(type));
+
+        then(isCollected(classLoader)).describedAs("unrelated class loader collected").isTrue();
+    }
+
+    @Test void shouldCollectUnrelatedClassLoaderAfterQueryingItsAnnotation() throws Exception {
+        WeakReference<ClassLoader> classLoader = useUnrelated(UnrelatedAnnotation.class,
+            type -> longLived.query(type.asSubclass(Annotation.class)).on(String.class));
+
+        then(isCollected(classLoader)).describedAs("unrelated class loader collected").isTrue();
+    }
+
+    /** A class loader without our class loader as parent, that loads the test classes again */
+    private static WeakReference<ClassLoader> useUnrelated(Class<?> type, Consumer<Class<?>> use) throws Exception {
+        URLClassLoader classLoader = new URLClassLoader(new URL[]{testClasses()}, null);
+        Class<?> unrelated = classLoader.loadClass(type.getName());
+        use.accept(unrelated);
+        use.accept(unrelated); // and again from the cache
+        return new WeakReference<>(classLoader);
+    }
+
+    private static URL testClasses() throws MalformedURLException {
+        return Paths.get("target/test-classes").toUri().toURL();
+    }
+
+    private static WeakReference<PowerAnnotationsLoader> useAndForget(Consumer<PowerAnnotationsLoader> use) {
+        PowerAnnotationsLoader loader = new PowerAnnotationsLoader(Index.load(), false);
+        use.accept(loader);
+        use.accept(loader); // and again from the cache
+        return new WeakReference<>(loader);
+    }
+
+    private static boolean isCollected(WeakReference<?> reference) throws InterruptedException {
+        for (int i = 0; i < 50 && reference.get() != null; i++) {
+            System.gc();
+            Thread.sleep(10);
+        }
+        return reference.get() == null;
+    }
+}
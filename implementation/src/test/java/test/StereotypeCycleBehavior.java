@@ -0,0 +1,125 @@
+package test;
+
+import com.github.t1.annotations.Stereotype;
+import com.github.t1.annotations.impl.PowerAnnotationsLoader;
+import com.github.t1.annotations.index.Index;
+import org.jboss.jandex.IndexWriter;
+import org.jboss.jandex.Indexer;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URISyntaxException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.stream.Collectors.toList;
+import static org.assertj.core.api.Assertions.catchThrowable;
+import static org.assertj.core.api.BDDAssertions.then;
+
+/**
+ * A stereotype cycle can't be compiled into the test classes, as it would break all other tests;
+ * so we compile the annotation types into a separate directory and index only those.
+ */
+class StereotypeCycleBehavior {
+    @TempDir Path dir;
+
+    private final List<Path> sources = new ArrayList<>();
+
+    @Test void shouldFailToResolveStereotypeCycle() {
+        stereotype("CycleA", "CycleB");
+        stereotype("CycleB", "CycleC");
+        stereotype("CycleC", "CycleA");
+
+        Index index = index();
+
+        Throwable throwable = catchThrowable(() -> new PowerAnnotationsLoader(index, false));
+
+        then(throwable)
+            .isInstanceOf(IllegalStateException.class)
+            .hasMessage("stereotype cycle: cycle.CycleA -> cycle.CycleB -> cycle.CycleC -> cycle.CycleA");
+    }
+
+    @Test void shouldResolveSelfAnnotatedStereotype() { // like @Documented is @Documented
+        stereotype("Narcissus", "Narcissus");
+
+        Index index = index();
+
+        Throwable throwable = catchThrowable(() -> new PowerAnnotationsLoader(index, false));
+
+        then(throwable).isNull();
+    }
+
+    @Test void shouldFailToLazilyResolveStereotypeCycle() {
+        stereotype("CycleA", "CycleB");
+        stereotype("CycleB", "CycleA");
+
+        Index index = index();
+
+        Throwable throwable = catchThrowable(() -> new PowerAnnotationsLoader(index, true));
+
+        then(throwable)
+            .isInstanceOf(IllegalStateException.class)
+            .hasMessage("stereotype cycle: cycle.CycleA -> cycle.CycleB -> cycle.CycleA");
+    }
+
+    /** An annotation type annotated as a stereotype and with the other annotation */
+    private void stereotype(String name, String annotatedWith) {
+        try {
+            Path source = Files.createDirectories(dir.resolve("cycle")).resolve(name + ".java");
+            Files.write(source, ("package cycle;\n"
+                + "@" + Stereotype.class.getName() + " @" + annotatedWith + "\n"
+                + "@java.lang.annotation.Retention(java.lang.annotation.RetentionPolicy.RUNTIME)\n"
+                + "public @interface " + name + " {}\n").getBytes(UTF_8));
+            sources.add(source);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private Index index() {
+        compile();
+        try (Stream<Path> classFiles = Files.walk(dir)) {
+            Indexer indexer = new Indexer();
+            for (Path classFile : classFiles.filter(path -> path.toString().endsWith(".class")).collect(toList()))
+                try (InputStream inputStream = Files.newInputStream(classFile)) {
+                    indexer.index(inputStream);
+                }
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            new IndexWriter(out).write(indexer.complete());
+            return Index.from(new ByteArrayInputStream(out.toByteArray()));
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private void compile() {
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        List<String> arguments = new ArrayList<>();
+        arguments.add("-classpath");
+        arguments.add(classPathEntryOf(Stereotype.class));
+        arguments.add("-d");
+        arguments.add(dir.toString());
+        sources.forEach(source -> arguments.add(source.toString()));
+        int status = compiler.run(null, null, null, arguments.toArray(new String[0]));
+        then(status).describedAs("compiler status").isZero();
+    }
+
+    private static String classPathEntryOf(Class<?> type) {
+        try {
+            return Paths.get(type.getProtectionDomain().getCodeSource().getLocation().toURI()).toString();
+        } catch (URISyntaxException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
@@ -5,6 +5,7 @@ import org.jboss.jandex.DotName;
 import java.lang.annotation.Repeatable;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.function.Function;
 import java.util.stream.Stream;
 
 import static com.github.t1.annotations.index.Utils.toDotName;
@@ -61,6 +62,8 @@ public class AnnotationInstance {
     private final Optional<Index> index;
     private final org.jboss.jandex.AnnotationInstance delegate;
     private final Optional<AnnotationTarget> target;
+    /** The cached result of {@link #proxy(Function)}; it lives as long as the index the instance belongs to */
+    private volatile Object proxy;
 
     private AnnotationInstance(Optional<Index> index, org.jboss.jandex.AnnotationInstance delegate) {
         this.index = index;
@@ -95,6 +98,8 @@ public class AnnotationInstance {
 
     public String typeName() { return delegate.name().toString(); }
 
+    org.jboss.jandex.AnnotationInstance delegate() { return delegate; }
+
     public ClassInfo type() { return index().classInfo(delegate.name()); }
 
     private Index index() { return index.orElseThrow(this::notForMetaAnnotations); }
@@ -106,12 +111,38 @@ public class AnnotationInstance {
         return new AnnotationValue(index, value);
     }
 
+    /**
+     * Like {@link #value(String)}, but <code>null</code> for the default value of a meta annotation,
+     * as the type of a meta annotation can't be looked up in the index.
+     */
+    public AnnotationValue valueOrNull(String name) {
+        org.jboss.jandex.AnnotationValue value = delegate.value(name);
+        if (value == null) {
+            if (!index.isPresent())
+                return null;
+            value = defaultValue(name);
+        }
+        return new AnnotationValue(index, value);
+    }
+
     private org.jboss.jandex.AnnotationValue defaultValue(String name) {
         return type().method(name, new String[0]) // annotation properties don't take args
             .orElseThrow(() -> new RuntimeException("no value '" + name + "' in " + this))
             .defaultValue();
     }
 
+    /**
+     * Create a representation of this instance (e.g. a dynamic proxy implementing the annotation type) only once.
+     * Two threads may race to create it, but then they both get an equivalent object.
+     */
+    public <T> T proxy(Function<AnnotationInstance, T> factory) {
+        @SuppressWarnings("unchecked")
+        T result = (T) proxy;
+        if (result == null)
+            proxy = result = factory.apply(this);
+        return result;
+    }
+
     public AnnotationTarget target() { return target.orElseThrow(this::notForMetaAnnotations); }
 
     private UnsupportedOperationException notForMetaAnnotations() {
@@ -2,16 +2,24 @@ package com.github.t1.annotations.index;
 
 import java.lang.annotation.ElementType;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.stream.Stream;
 
 import static com.github.t1.annotations.index.AnnotationInstance.resolveRepeatables;
+import static java.util.Collections.emptyList;
+import static java.util.Collections.unmodifiableList;
 import static java.util.Objects.requireNonNull;
 import static java.util.stream.Collectors.toList;
 
 public abstract class AnnotationTarget {
     protected final Index index;
+    private List<AnnotationInstance> declaredAnnotations;
     private List<AnnotationInstance> annotations;
+    private Map<String, List<AnnotationInstance>> annotationsByType;
+    private volatile boolean frozen;
 
     public AnnotationTarget(Index index) { this.index = requireNonNull(index); }
 
@@ -20,27 +28,61 @@ public abstract class AnnotationTarget {
     public abstract String name();
 
     public Stream<AnnotationInstance> annotations(String name) {
+        if (frozen)
+            return getAnnotations(name).stream();
         return annotations()
             .filter(annotationInstance -> annotationInstance.typeName().equals(name));
     }
 
+    /**
+     * The annotations of one type. When the target is {@link #freeze() frozen}, this is a single hash lookup,
+     * and the size of the list tells if the annotation is missing, unique, or ambiguous.
+     */
+    public List<AnnotationInstance> getAnnotations(String typeName) {
+        if (frozen)
+            return annotationsByType.getOrDefault(typeName, emptyList());
+        return annotations(typeName).collect(toList());
+    }
+
     public final Stream<AnnotationInstance> annotations() {
         return getAnnotations().stream();
     }
 
     public List<AnnotationInstance> getAnnotations() {
         if (annotations == null)
-            annotations = rawAnnotations()
-                .flatMap(instance -> resolveRepeatables(index, instance))
-                .collect(toList());
+            annotations = new ArrayList<>(getDeclaredAnnotations());
         return annotations;
     }
 
+    /** The annotations as they are in the class file, i.e. without any resolved annotations */
+    public final Stream<AnnotationInstance> declaredAnnotations() {
+        return getDeclaredAnnotations().stream();
+    }
+
+    List<AnnotationInstance> getDeclaredAnnotations() {
+        if (declaredAnnotations == null)
+            declaredAnnotations = unmodifiableList(rawAnnotations()
+                .flatMap(instance -> resolveRepeatables(index, instance))
+                .collect(toList()));
+        return declaredAnnotations;
+    }
+
+    /** Set the annotations that have already been resolved, e.g. when loading a resolved index file */
+    void setResolvedAnnotations(List<AnnotationInstance> annotations) {
+        checkNotFrozen();
+        this.annotations = annotations.stream()
+            .map(instance -> instance.cloneWithTarget(this))
+            .collect(toList());
+        annotationsChanged();
+    }
+
     /**
      * Replace all annotations, while checking that the annotations can actually still be added (e.g. non-repeatables)
      */
     public void replaceAnnotations(List<AnnotationInstance> annotations) {
+        checkNotFrozen();
         this.annotations = new ArrayList<>();
+        annotationsChanged();
         annotations.stream()
             .filter(this::canBeAdded)
             .forEach(this::add);
@@ -48,6 +90,41 @@ public abstract class AnnotationTarget {
 
     protected abstract Stream<org.jboss.jandex.AnnotationInstance> rawAnnotations();
 
+    /** Called whenever the resolved annotations change, so subclasses can drop what they derived from them */
+    protected void annotationsChanged() {}
+
+    /**
+     * Make the annotations immutable, when they are completely resolved;
+     * after that, they can be read by several threads without locking.
+     * Those threads may also be the first to freeze a target, so this is synchronized.
+     */
+    public synchronized void freeze() {
+        if (frozen)
+            return;
+        getDeclaredAnnotations();
+        this.annotations = unmodifiableList(new ArrayList<>(getAnnotations()));
+        this.annotationsByType = byType(annotations);
+        this.frozen = true; // volatile write: publishes the lists
+    }
+
+    private static Map<String, List<AnnotationInstance>> byType(List<AnnotationInstance> annotations) {
+        Map<String, List<AnnotationInstance>> map = new HashMap<>();
+        for (AnnotationInstance annotation : annotations)
+            map.computeIfAbsent(annotation.typeName(), typeName -> new ArrayList<>(1)).add(annotation);
+        map.replaceAll((typeName, list) -> unmodifiableList(list));
+        return map;
+    }
+
+    public boolean isFrozen() { return frozen; }
+
+    /** The names of the annotation types of a {@link #freeze() frozen} target */
+    Set<String> annotationTypeNames() { return annotationsByType.keySet(); }
+
+    private void checkNotFrozen() {
+        if (frozen)
+            throw new IllegalStateException("annotations of " + this + " are already frozen");
+    }
+
     public boolean isAnnotationPresent(String typeName) {
         return annotations(typeName).findAny().isPresent();
     }
@@ -56,13 +133,15 @@ public abstract class AnnotationTarget {
         ClassInfo annotationType = instance.type();
         assert annotationType.isImplicitlyAllowedOn(elementType());
         if (!annotationType.isRepeatableAnnotation())
-            getAnnotations().removeIf(annotation -> annotation.type().equals(annotationType));
+            if (getAnnotations().removeIf(annotation -> annotation.type().equals(annotationType)))
+                annotationsChanged();
         add(instance);
     }
 
     public void add(AnnotationInstance instance) {
         assert canBeAdded(instance);
         getAnnotations().add(instance.cloneWithTarget(this));
+        annotationsChanged();
     }
 
     public boolean canBeAdded(AnnotationInstance instance) {
@@ -1,45 +1,60 @@
 package com.github.t1.annotations.index;
 
 import org.jboss.jandex.ClassType;
+import org.jboss.jandex.DotName;
 
 import java.lang.annotation.Annotation;
 import java.lang.annotation.ElementType;
 import java.lang.annotation.Target;
-import java.util.HashSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
-import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Stream;
-import java.util.stream.Stream.Builder;
 
-import static com.github.t1.annotations.index.MethodInfo.signature;
 import static com.github.t1.annotations.index.Utils.streamOfNullable;
-import static com.github.t1.annotations.index.Utils.toArray;
 import static com.github.t1.annotations.index.Utils.toDotName;
-import static com.github.t1.annotations.index.Utils.toTreeMap;
 import static java.lang.annotation.ElementType.ANNOTATION_TYPE;
 import static java.lang.annotation.ElementType.TYPE;
+import static java.util.Collections.unmodifiableMap;
 import static java.util.Objects.requireNonNull;
-import static java.util.function.Function.identity;
 
 public class ClassInfo extends AnnotationTarget {
     public static Class<?> toClass(Object value) {
-        String className = ((ClassType) value).name().toString();
+        String className = className(value);
 
-        ClassLoader loader = Thread.currentThread().getContextClassLoader();
         try {
             // TODO does this work in Quarkus?
-            return Class.forName(className, true, loader);
+            return LoadedClasses.load(className);
         } catch (ClassNotFoundException e) {
             throw new RuntimeException("class not found '" + className + "'", e);
         }
     }
 
+    /** The name of the class that a raw <code>Class</code> annotation value refers to, without loading it */
+    public static String className(Object value) {
+        return ((ClassType) value).name().toString();
+    }
+
+
+    private static final ClassInfo[] NO_TYPES = new ClassInfo[0];
+
+    // the bits of the flags(); the lower bits are the ordinals of the element types from the <code>@Target</code>
+    private static final int UNKNOWN = -1;
+    private static final int NO_TARGET = 1 << 28;
+    private static final int REPEATABLE = 1 << 29;
+    private static final int STEREOTYPE = 1 << 30;
 
     private final org.jboss.jandex.ClassInfo delegate;
-    private final Map<String, FieldInfo> fields = new TreeMap<>();
-    private Map<String, MethodInfo> methods;
+    private final Map<String, FieldInfo> fields = new ConcurrentHashMap<>();
+    private volatile Map<MethodSignature, MethodInfo> methods;
+    private volatile Map<MethodSignature, org.jboss.jandex.MethodInfo> declaredMethods;
+    private volatile ClassInfo[] typeTree;
+    private volatile int flags = UNKNOWN;
 
     ClassInfo(Index index, org.jboss.jandex.ClassInfo delegate) {
         super(index);
@@ -72,24 +87,43 @@ public class ClassInfo extends AnnotationTarget {
         return implementsInterface(Annotation.class.getName());
     }
 
+    /**
+     * This class, its interfaces, its super class, its interfaces, etc. Every type shows up only once,
+     * at its first position, i.e. an interface that is implemented several times is not repeated.
+     */
     public Stream<ClassInfo> typeTree() {
-        return thisAndSuperClasses().flatMap(this::thisAndSuperInterfaces);
+        return Stream.of(getTypeTree());
     }
 
-    private Stream<ClassInfo> thisAndSuperInterfaces(ClassInfo classInfo) {
-        return Stream.concat(Stream.of(classInfo), classInfo.superInterfaces());
+    /** The {@link #typeTree() type tree}, computed only once; don't modify the array */
+    ClassInfo[] getTypeTree() {
+        ClassInfo[] typeTree = this.typeTree;
+        if (typeTree == null) // the race is benign, as the result is always the same
+            this.typeTree = typeTree = computeTypeTree();
+        return typeTree;
     }
 
-    private Stream<ClassInfo> superInterfaces() {
-        return delegate.interfaceNames().stream().map(index::classInfo).flatMap(this::thisAndSuperInterfaces);
+    /** Reuses the type trees of the super class and the interfaces */
+    private ClassInfo[] computeTypeTree() {
+        if (!hasSuperClass()) // e.g. a class that is not in the index
+            return NO_TYPES;
+        Set<ClassInfo> typeTree = new LinkedHashSet<>();
+        typeTree.add(this);
+        addInterfacesTo(typeTree);
+        Collections.addAll(typeTree, superClass().getTypeTree());
+        return typeTree.toArray(NO_TYPES);
     }
 
-    private Stream<ClassInfo> thisAndSuperClasses() {
-        // Java 9+: return Stream.iterate(this, ClassInfo::hasSuperClass, ClassInfo::superClass);
-        Builder<ClassInfo> builder = Stream.builder();
-        for (ClassInfo classInfo = this; classInfo.hasSuperClass(); classInfo = classInfo.superClass())
-            builder.accept(classInfo);
-        return builder.build();
+    private void addInterfacesTo(Set<ClassInfo> typeTree) {
+        for (DotName interfaceName : delegate.interfaceNames()) {
+            ClassInfo superInterface = index.classInfo(interfaceName);
+            if (superInterface.hasSuperClass()) {
+                Collections.addAll(typeTree, superInterface.getTypeTree());
+            } else { // not in the index
+                typeTree.add(superInterface);
+                superInterface.addInterfacesTo(typeTree);
+            }
+        }
     }
 
     public boolean hasSuperClass() {
@@ -100,26 +134,42 @@ public class ClassInfo extends AnnotationTarget {
         return index.classInfo(delegate.superName());
     }
 
+    /** The interfaces that this type directly extends or implements */
+    public Stream<ClassInfo> interfaces() {
+        return delegate.interfaceNames().stream().map(index::classInfo);
+    }
+
     public boolean implementsInterface(String typeName) {
         return delegate.interfaceNames().contains(toDotName(typeName));
     }
 
     public boolean isImplicitlyAllowedOn(ElementType elementType) {
-        return isAllowedOn(elementType).orElse(true);
+        int flags = flags();
+        return (flags & NO_TARGET) != 0 || isAllowedOn(flags, elementType);
     }
 
     public boolean isExplicitlyAllowedOn(ElementType elementType) {
-        return isAllowedOn(elementType).orElse(false);
+        int flags = flags();
+        return (flags & NO_TARGET) == 0 && isAllowedOn(flags, elementType);
     }
 
-    private Optional<Boolean> isAllowedOn(ElementType targetElementType) {
+    private static boolean isAllowedOn(int flags, ElementType targetElementType) {
+        return (flags & bit(targetElementType)) != 0
+            || (targetElementType == ANNOTATION_TYPE && (flags & bit(TYPE)) != 0);
+    }
+
+    private static int bit(ElementType elementType) { return 1 << elementType.ordinal(); }
+
+    /**
+     * The <code>@Target</code> element types, and if this is a repeatable annotation or a stereotype,
+     * computed only once; mixins can still change them while resolving, so they are then computed again.
+     */
+    private int flags() {
         // would like to `assert isAnnotationType()`, but `this` may not be in the index
-        Set<String> allowed = new HashSet<>();
-        allowed.add(targetElementType.name());
-        if (targetElementType == ANNOTATION_TYPE)
-            allowed.add(TYPE.name());
-        return annotations(Target.class.getName()).findAny()
-            .map(annotationInstance -> annotationValues(annotationInstance).anyMatch(allowed::contains));
+        int flags = this.flags;
+        if (flags == UNKNOWN) // the race is benign, as the result is always the same
+            this.flags = flags = computeFlags();
+        return flags;
     }
 
     private Stream<String> annotationValues(AnnotationInstance annotationInstance) {
@@ -127,47 +177,120 @@ public class ClassInfo extends AnnotationTarget {
             .map(annotationValue -> annotationValue.value(String.class));
     }
 
+    private int computeFlags() {
+        int flags = AnnotationInstance.isRepeatable(delegate) ? REPEATABLE : 0;
+        boolean hasTarget = false;
+        for (AnnotationInstance annotationInstance : getAnnotations()) {
+            String typeName = annotationInstance.typeName();
+            if (typeName.equals(Target.class.getName())) {
+                hasTarget = true;
+                flags |= targetBits(annotationInstance);
+            } else if (typeName.endsWith(".Stereotype")) {
+                flags |= STEREOTYPE;
+            }
+        }
+        return hasTarget ? flags : flags | NO_TARGET;
+    }
+
+    private int targetBits(AnnotationInstance target) {
+        int bits = 0;
+        for (String elementType : (Iterable<String>) annotationValues(target)::iterator) {
+            try {
+                bits |= bit(ElementType.valueOf(elementType));
+            } catch (IllegalArgumentException e) {
+                // an element type of a newer JDK, e.g. `RECORD_COMPONENT`: can't be used on our targets, anyway
+            }
+        }
+        return bits;
+    }
+
+    @Override protected void annotationsChanged() { this.flags = UNKNOWN; }
+
     public Stream<FieldInfo> fields() {
         return typeTree().flatMap(c -> c.delegate.fields().stream()).map(this::fieldInfo);
     }
 
     public Optional<FieldInfo> field(String fieldName) {
-        return typeTree().flatMap(c -> streamOfNullable(c.delegate.field(fieldName))).map(this::fieldInfo).findFirst();
+        for (ClassInfo classInfo : getTypeTree()) {
+            org.jboss.jandex.FieldInfo fieldInfo = classInfo.delegate.field(fieldName);
+            if (fieldInfo != null)
+                return Optional.of(fieldInfo(fieldInfo));
+        }
+        return Optional.empty();
     }
 
     private FieldInfo fieldInfo(org.jboss.jandex.FieldInfo fieldInfo) {
-        return fields.computeIfAbsent(fieldInfo.name(), f -> new FieldInfo(index, fieldInfo));
+        FieldInfo existing = fields.get(fieldInfo.name()); // lock free, when all fields are materialized
+        return (existing != null) ? existing : fields.computeIfAbsent(fieldInfo.name(), f -> new FieldInfo(this, fieldInfo));
     }
 
     public Stream<MethodInfo> methods() {
         return getMethods().values().stream();
     }
 
-    private Map<String, MethodInfo> getMethods() {
+    /** The methods by signature, in the order of the type tree; the method furthest up in the type tree wins */
+    private Map<MethodSignature, MethodInfo> getMethods() {
+        Map<MethodSignature, MethodInfo> methods = this.methods;
         if (methods == null) {
-            methods = typeTree()
-                .flatMap(c -> c.delegate.methods().stream())
-                .map(methodInfo -> new MethodInfo(this, methodInfo))
-                .filter(MethodInfo::isNotConstructor)
-                .distinct()
-                .collect(toTreeMap(MethodInfo::signature, identity()));
+            synchronized (this) {
+                methods = this.methods;
+                if (methods == null) {
+                    Map<MethodSignature, MethodInfo> map = new LinkedHashMap<>();
+                    for (ClassInfo classInfo : getTypeTree())
+                        for (org.jboss.jandex.MethodInfo delegate : classInfo.delegate.methods()) {
+                            MethodInfo methodInfo = new MethodInfo(this, delegate);
+                            if (methodInfo.isNotConstructor())
+                                map.put(methodInfo.methodSignature(), methodInfo);
+                        }
+                    this.methods = methods = unmodifiableMap(map);
+                }
+            }
         }
         return methods;
     }
 
+    /** The Jandex method with this signature that this type itself declares, or <code>null</code> */
+    org.jboss.jandex.MethodInfo declaredMethod(MethodSignature signature) {
+        Map<MethodSignature, org.jboss.jandex.MethodInfo> declaredMethods = this.declaredMethods;
+        if (declaredMethods == null) { // the race is benign, as the result is always the same
+            Map<MethodSignature, org.jboss.jandex.MethodInfo> map = new HashMap<>();
+            for (org.jboss.jandex.MethodInfo methodInfo : delegate.methods())
+                map.put(MethodSignature.of(methodInfo), methodInfo);
+            this.declaredMethods = declaredMethods = map;
+        }
+        return declaredMethods.get(signature);
+    }
+
+    /** Does this type itself declare any methods with annotations, including parameter or type annotations */
+    public boolean declaresAnnotatedMethods() {
+        for (org.jboss.jandex.MethodInfo methodInfo : delegate.methods())
+            if (!methodInfo.annotations().isEmpty())
+                return true;
+        return false;
+    }
+
     public Optional<MethodInfo> method(String methodName, Class<?>... argTypes) {
-        return method(methodName, Stream.of(argTypes).map(Class::getName).collect(toArray(String.class)));
+        return method(MethodSignature.of(methodName, argTypes));
     }
 
     public Optional<MethodInfo> method(String methodName, String... argTypeNames) {
-        return Optional.ofNullable(getMethods().get(signature(methodName, argTypeNames)));
+        return method(MethodSignature.of(methodName, argTypeNames));
+    }
+
+    public Optional<MethodInfo> method(MethodSignature signature) {
+        return Optional.ofNullable(getMethods().get(signature));
     }
 
-    public Stream<MethodInfo> findMethod(String signature) {
+    public Stream<MethodInfo> findMethod(MethodSignature signature) {
         return streamOfNullable(getMethods().get(signature));
     }
 
     public boolean isRepeatableAnnotation() {
-        return AnnotationInstance.isRepeatable(delegate);
+        return (flags() & REPEATABLE) != 0;
+    }
+
+    /** Is this annotation type annotated as a <code>Stereotype</code>, i.e. any annotation with that simple name */
+    public boolean isStereotype() {
+        return (flags() & STEREOTYPE) != 0;
     }
 }
@@ -7,10 +7,12 @@ import static java.lang.annotation.ElementType.FIELD;
 import static java.util.Objects.requireNonNull;
 
 public class FieldInfo extends AnnotationTarget {
+    private final ClassInfo declaringClass;
     private final org.jboss.jandex.FieldInfo delegate;
 
-    FieldInfo(Index index, org.jboss.jandex.FieldInfo delegate) {
-        super(index);
+    FieldInfo(ClassInfo declaringClass, org.jboss.jandex.FieldInfo delegate) {
+        super(declaringClass.index);
+        this.declaringClass = requireNonNull(declaringClass);
         this.delegate = requireNonNull(delegate);
     }
 
@@ -24,4 +26,6 @@ public class FieldInfo extends AnnotationTarget {
     @Override protected Stream<org.jboss.jandex.AnnotationInstance> rawAnnotations() {
         return delegate.annotations().stream();
     }
+
+    public ClassInfo declaringClass() { return declaringClass; }
 }
@@ -0,0 +1,119 @@
+package com.github.t1.annotations.index;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Random access to the entries of a zip archive that is already in memory, e.g. a jar nested in a war,
+ * by reading the central directory, so we don't have to inflate the entries we don't need.
+ * Only the plain zip format is supported, i.e. no zip64 or encryption; the caller has to fall back to streaming.
+ */
+class InMemoryZip {
+    private static final int END_OF_CENTRAL_DIRECTORY = 0x06054b50;
+    private static final int CENTRAL_DIRECTORY_ENTRY = 0x02014b50;
+    private static final int LOCAL_FILE_HEADER = 0x04034b50;
+    private static final int END_OF_CENTRAL_DIRECTORY_SIZE = 22;
+    private static final int MAX_COMMENT_SIZE = 0xFFFF;
+    private static final int STORED = 0;
+    private static final int DEFLATED = 8;
+
+    static class Entry {
+        final String name;
+        final int size;
+        private final int method;
+        private final int compressedSize;
+        private final int localHeaderOffset;
+
+        private Entry(String name, int method, int compressedSize, int size, int localHeaderOffset) {
+            this.name = name;
+            this.method = method;
+            this.compressedSize = compressedSize;
+            this.size = size;
+            this.localHeaderOffset = localHeaderOffset;
+        }
+    }
+
+    /** @return empty, if the bytes are not in a format we support */
+    static Optional<InMemoryZip> of(byte[] bytes) {
+        int end = findEndOfCentralDirectory(bytes);
+        if (end < 0)
+            return Optional.empty();
+        int count = u16(bytes, end + 10);
+        int offset = (int) u32(bytes, end + 16);
+        List<Entry> entries = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            if (offset + 46 > bytes.length || (int) u32(bytes, offset) != CENTRAL_DIRECTORY_ENTRY)
+                return Optional.empty();
+            int flags = u16(bytes, offset + 8);
+            int method = u16(bytes, offset + 10);
+            long compressedSize = u32(bytes, offset + 20);
+            long size = u32(bytes, offset + 24);
+            int nameLength = u16(bytes, offset + 28);
+            int extraLength = u16(bytes, offset + 30);
+            int commentLength = u16(bytes, offset + 32);
+            long localHeaderOffset = u32(bytes, offset + 42);
+            if ((flags & 1) != 0 || (method != STORED && method != DEFLATED)
+                || compressedSize >= bytes.length || size > Integer.MAX_VALUE || localHeaderOffset >= bytes.length
+                || offset + 46 + nameLength > bytes.length)
+                return Optional.empty();
+            String name = new String(bytes, offset + 46, nameLength, UTF_8);
+            entries.add(new Entry(name, method, (int) compressedSize, (int) size, (int) localHeaderOffset));
+            offset += 46 + nameLength + extraLength + commentLength;
+        }
+        return Optional.of(new InMemoryZip(bytes, entries));
+    }
+
+    private static int findEndOfCentralDirectory(byte[] bytes) {
+        int min = Math.max(0, bytes.length - END_OF_CENTRAL_DIRECTORY_SIZE - MAX_COMMENT_SIZE);
+        for (int i = bytes.length - END_OF_CENTRAL_DIRECTORY_SIZE; i >= min; i--)
+            if ((int) u32(bytes, i) == END_OF_CENTRAL_DIRECTORY)
+                return i;
+        return -1;
+    }
+
+    private static int u16(byte[] bytes, int offset) {
+        return (bytes[offset] & 0xFF) | (bytes[offset + 1] & 0xFF) << 8;
+    }
+
+    private static long u32(byte[] bytes, int offset) {
+        return (u16(bytes, offset) | (long) u16(bytes, offset + 2) << 16);
+    }
+
+
+    private final byte[] bytes;
+    private final List<Entry> entries;
+
+    private InMemoryZip(byte[] bytes, List<Entry> entries) {
+        this.bytes = bytes;
+        this.entries = entries;
+    }
+
+    List<Entry> entries() { return entries; }
+
+    InputStream open(Entry entry) throws IOException {
+        int header = entry.localHeaderOffset;
+        if (header + 30 > bytes.length || (int) u32(bytes, header) != LOCAL_FILE_HEADER)
+            throw new IOException("invalid local file header of " + entry.name);
+        int data = header + 30 + u16(bytes, header + 26) + u16(bytes, header + 28);
+        if (data + entry.compressedSize > bytes.length)
+            throw new IOException("truncated entry " + entry.name);
+        if (entry.method == STORED)
+            return new ByteArrayInputStream(bytes, data, entry.compressedSize);
+        // the inflater may need one more byte than the compressed data; there's always the central directory behind it
+        InputStream compressed = new ByteArrayInputStream(bytes, data, entry.compressedSize + 1);
+        return new InflaterInputStream(compressed, new Inflater(true)) {
+            @Override public void close() throws IOException {
+                super.close();
+                inf.end();
+            }
+        };
+    }
+}
@@ -3,28 +3,40 @@ package com.github.t1.annotations.index;
 import org.jboss.jandex.DotName;
 import org.jboss.jandex.IndexReader;
 import org.jboss.jandex.IndexView;
-import org.jboss.jandex.Type;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.TreeMap;
+import java.util.Set;
+import java.util.concurrent.ConcurrentSkipListMap;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.stream.Stream;
 
 import static com.github.t1.annotations.index.AnnotationInstance.resolveRepeatables;
-import static com.github.t1.annotations.index.Utils.toArray;
 import static com.github.t1.annotations.index.Utils.toDotName;
 import static java.lang.reflect.Modifier.PUBLIC;
+import static java.util.Collections.emptyList;
 import static java.util.Collections.emptyMap;
+import static java.util.Collections.unmodifiableList;
 import static java.util.Objects.requireNonNull;
 import static java.util.logging.Level.FINE;
 import static java.util.stream.Collectors.joining;
+import static java.util.stream.Collectors.toList;
 
 public class Index {
     public static Index load() {
-        IndexView jandex = loadFromIndexFile();
+        Index resolved = loadFromResolvedIndexFile();
+        if (resolved != null)
+            return resolved;
+        IndexView jandex = loadFromIndexFiles();
         if (jandex == null)
             jandex = new Indexer().scanClassPath();
         if (LOG.isLoggable(LEVEL)) {
@@ -44,11 +56,94 @@ public class Index {
         return new Index(loadFrom(inputStream));
     }
 
-    private static IndexView loadFromIndexFile() {
-        try (InputStream inputStream = getClassLoader().getResourceAsStream("META-INF/jandex.idx")) {
-            return (inputStream == null) ? null : loadFrom(inputStream);
+    /** Load an index written by {@link #writeResolved(OutputStream)}, i.e. the annotations don't have to be resolved again */
+    public static Index fromResolved(InputStream inputStream) {
+        try {
+            return ResolvedIndexFile.read(inputStream, entries -> true);
+        } catch (RuntimeException | IOException e) {
+            throw new RuntimeException("can't read resolved index input stream", e);
+        }
+    }
+
+    /**
+     * A resolved index file contains the classes of the project that wrote it, and of its dependencies.
+     * A library built with the plugin ships its own, but that doesn't contain the classes of the application,
+     * so we use only a file that covers all other entries of the class path. If there is none, we fall back
+     * to merging the Jandex indexes and resolving the annotations again.
+     */
+    private static Index loadFromResolvedIndexFile() {
+        List<URL> indexFiles = resources(ResolvedIndexFile.RESOURCE);
+        if (indexFiles.isEmpty())
+            return null;
+        List<URL> classPath = new Indexer().classPathEntries().collect(toList());
+        for (URL indexFile : indexFiles) {
+            Index index = loadFromResolvedIndexFile(indexFile, classPath);
+            if (index != null)
+                return index;
+        }
+        LOG.info("the resolved index files don't cover the class path; resolve again: " + indexFiles);
+        return null;
+    }
+
+    private static Index loadFromResolvedIndexFile(URL indexFile, List<URL> classPath) {
+        try (InputStream inputStream = indexFile.openStream()) {
+            return ResolvedIndexFile.read(inputStream, entries -> covers(entries, indexFile, classPath));
+        } catch (RuntimeException | IOException e) {
+            throw new RuntimeException("can't read resolved index file " + indexFile, e);
+        }
+    }
+
+    /** The entries a resolved index file was built from cover all entries of the class path, except its own */
+    static boolean covers(Set<String> entries, URL indexFile, List<URL> classPath) {
+        Object own = Indexer.key(classPathEntry(indexFile, ResolvedIndexFile.RESOURCE));
+        return classPath.stream()
+            .filter(entry -> !Indexer.key(entry).equals(own))
+            .allMatch(entry -> entries.contains(ResolvedIndexFile.entryName(entry)));
+    }
+
+    /**
+     * Merge all <code>META-INF/jandex.idx</code> files on the class path, and scan only the class path entries
+     * that don't have one, i.e. we return <code>null</code>, if there is no index file at all.
+     */
+    private static IndexView loadFromIndexFiles() {
+        List<URL> indexFiles = resources(INDEX_FILE);
+        if (indexFiles.isEmpty())
+            return null;
+        List<IndexView> indexes = new ArrayList<>();
+        for (URL indexFile : indexFiles)
+            indexes.add(loadFromIndexFile(indexFile));
+        List<URL> indexed = indexFiles.stream().map(indexFile -> classPathEntry(indexFile, INDEX_FILE)).collect(toList());
+        indexes.add(new Indexer().scanClassPathWithout(indexed));
+        indexes.removeIf(index -> index.getKnownClasses().isEmpty());
+        return (indexes.size() == 1) ? indexes.get(0) : Indexer.merge(indexes);
+    }
+
+    private static List<URL> resources(String name) {
+        try {
+            return Collections.list(getClassLoader().getResources(name));
+        } catch (IOException e) {
+            throw new RuntimeException("can't find " + name + " files", e);
+        }
+    }
+
+    private static IndexView loadFromIndexFile(URL indexFile) {
+        try (InputStream inputStream = indexFile.openStream()) {
+            return loadFrom(inputStream);
         } catch (RuntimeException | IOException e) {
-            throw new RuntimeException("can't read index file", e);
+            throw new RuntimeException("can't read index file " + indexFile, e);
+        }
+    }
+
+    /** The jar or folder containing that index file */
+    static URL classPathEntry(URL indexFile, String resource) {
+        String url = indexFile.toString();
+        url = url.substring(0, url.length() - resource.length());
+        if (url.startsWith("jar:") && url.endsWith("!/"))
+            url = url.substring(4, url.length() - 2);
+        try {
+            return new URL(url);
+        } catch (MalformedURLException e) {
+            throw new RuntimeException("invalid class path entry " + url + " of index file " + indexFile, e);
         }
     }
 
@@ -69,10 +164,93 @@ public class Index {
         return new Index(new Indexer().scanClassPath());
     }
 
+    /** Index the classes in these folders and archives, e.g. the dependencies of a build */
+    public static Index fromClassPath(List<URL> classPath) {
+        Index index = new Index(new Indexer().scan(classPath.stream()));
+        index.classPathEntries = classPath.stream().map(ResolvedIndexFile::entryName).collect(toList());
+        return index;
+    }
+
+    private static final String INDEX_FILE = "META-INF/jandex.idx";
+
     final IndexView jandex;
-    private final Map<DotName, ClassInfo> classInfos = new TreeMap<>();
+    private final boolean resolved;
+    /** The names of the class path entries this index was built from, if we know them */
+    List<String> classPathEntries = emptyList();
+    private final Map<DotName, ClassInfo> classInfos = new ConcurrentSkipListMap<>();
+    private volatile Map<String, List<AnnotationTarget>> targetsByType;
+    private volatile boolean frozen;
+
+    Index(IndexView jandex) { this(jandex, false); }
+
+    Index(IndexView jandex, boolean resolved) {
+        this.jandex = requireNonNull(jandex);
+        this.resolved = resolved;
+    }
+
+    /** The annotations have already been resolved, i.e. this index was loaded from a resolved index file */
+    public boolean isResolved() { return resolved; }
+
+    /**
+     * Write the Jandex index together with the currently resolved annotations,
+     * so they can be {@link #fromResolved(InputStream) loaded} later without resolving them again.
+     * If this is written to <code>META-INF/power-annotations.idx</code>, it will be {@link #load() loaded} automatically.
+     */
+    public void writeResolved(OutputStream outputStream) {
+        try {
+            ResolvedIndexFile.write(this, outputStream);
+        } catch (IOException e) {
+            throw new RuntimeException("can't write resolved index", e);
+        }
+    }
+
+    /**
+     * Call this when all annotations are resolved. The classes, fields, and methods are then
+     * {@link AnnotationTarget#freeze() frozen} one by one, when they are first needed,
+     * so they can be read by several threads without locking.
+     */
+    public void freeze() { this.frozen = true; }
 
-    Index(IndexView jandex) { this.jandex = requireNonNull(jandex); }
+    public boolean isFrozen() { return frozen; }
+
+    /**
+     * The reverse index of the annotations, i.e. from the annotation type name to all targets with such annotations.
+     * This needs all classes with their fields and methods, so we build it only when it's first needed.
+     */
+    private Map<String, List<AnnotationTarget>> targetsByType() {
+        Map<String, List<AnnotationTarget>> targetsByType = this.targetsByType;
+        if (targetsByType == null) {
+            synchronized (this) {
+                targetsByType = this.targetsByType;
+                if (targetsByType == null) {
+                    Map<String, List<AnnotationTarget>> map = new HashMap<>();
+                    allClasses().forEach(AnnotationTarget::freeze);
+                    materializedClasses() // including, e.g., mocks of mixin targets
+                        .flatMap(classInfo -> Stream.concat(Stream.of(classInfo), Stream.concat(classInfo.fields().distinct(), classInfo.methods())))
+                        .forEach(target -> {
+                            target.freeze();
+                            target.annotationTypeNames()
+                                .forEach(typeName -> map.computeIfAbsent(typeName, t -> new ArrayList<>()).add(target));
+                        });
+                    map.replaceAll((typeName, targets) -> unmodifiableList(targets));
+                    this.targetsByType = targetsByType = map;
+                }
+            }
+        }
+        return targetsByType;
+    }
+
+    /**
+     * All classes, fields, and methods that have an annotation of this type, after all annotations are resolved,
+     * i.e. including those from stereotypes, mixins, etc. This is only possible when the index is {@link #freeze() frozen}.
+     */
+    public Stream<AnnotationTarget> allTargetsAnnotatedWith(Class<?> type) { return allTargetsAnnotatedWith(type.getName()); }
+
+    public Stream<AnnotationTarget> allTargetsAnnotatedWith(String typeName) {
+        if (!frozen)
+            throw new IllegalStateException("the index must be frozen to find all targets annotated with " + typeName);
+        return targetsByType().getOrDefault(typeName, emptyList()).stream();
+    }
 
     /** abstraction leak */
     @Deprecated public IndexView getJandex() { return jandex; }
@@ -85,7 +263,11 @@ public class Index {
         return classInfo(toDotName(type));
     }
 
+    /** Classes that are not in the Jandex index are mocked, so they don't have any annotations */
     ClassInfo classInfo(DotName typeName) {
+        ClassInfo classInfo = classInfos.get(typeName);
+        if (classInfo != null)
+            return classInfo;
         return classInfos.computeIfAbsent(typeName, t -> new ClassInfo(this, getClassByName(t)));
     }
 
@@ -119,6 +301,11 @@ public class Index {
         return jandex.getKnownClasses().stream().map(this::classInfo);
     }
 
+    /** All classes that have been accessed so far, including those that are not in the Jandex index */
+    Stream<ClassInfo> materializedClasses() {
+        return new ArrayList<>(classInfos.values()).stream();
+    }
+
     public AnnotationTarget delegateTarget(org.jboss.jandex.AnnotationTarget target) {
         switch (target.kind()) {
             case CLASS:
@@ -143,9 +330,8 @@ public class Index {
     }
 
     private MethodInfo methodInfo(org.jboss.jandex.MethodInfo methodInfo) {
-        String[] typeNames = methodInfo.parameters().stream().map(Type::name).map(DotName::toString).collect(toArray(String.class));
         return classInfo(methodInfo.declaringClass())
-            .method(methodInfo.name(), typeNames)
+            .method(MethodSignature.of(methodInfo))
             .orElseThrow(() -> new RuntimeException("expected method " + methodInfo));
     }
 
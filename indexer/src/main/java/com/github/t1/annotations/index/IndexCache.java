@@ -0,0 +1,134 @@
+package com.github.t1.annotations.index;
+
+import org.jboss.jandex.Index;
+import org.jboss.jandex.IndexReader;
+import org.jboss.jandex.IndexWriter;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Optional;
+import java.util.logging.Logger;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+
+/**
+ * A directory with the Jandex indexes of archives that have already been scanned, so they don't have to be scanned
+ * again on the next start. The files are named after a hash of the path of the archive, followed by its size and
+ * modification time, so a changed archive gets a new file, and the file of the previous version is deleted.
+ * Files that have not been used for {@link #MAX_AGE} are deleted, too, e.g. for archives that are not used any more.
+ */
+class IndexCache {
+    static final Duration MAX_AGE = Duration.ofDays(30);
+
+    private final Path directory;
+
+    IndexCache(Path directory) { this.directory = directory; }
+
+    /** @return the cached index of that archive, or empty if it's not cached */
+    Optional<Index> read(Path archive) {
+        Path file = null;
+        try {
+            file = file(archive);
+            if (!Files.isRegularFile(file))
+                return Optional.empty();
+            Index index;
+            try (InputStream inputStream = Files.newInputStream(file)) {
+                index = new IndexReader(inputStream).read();
+            }
+            touch(file);
+            return Optional.of(index);
+        } catch (IOException | RuntimeException e) {
+            LOG.warning("can't read cached index " + file + " of " + archive + ": " + e);
+            return Optional.empty();
+        }
+    }
+
+    /** The modification time of a cache file is the last time it was used; but we don't have to write it every time */
+    private static void touch(Path file) throws IOException {
+        FileTime now = FileTime.from(Instant.now());
+        if (Files.getLastModifiedTime(file).toMillis() < now.toMillis() - Duration.ofDays(1).toMillis())
+            Files.setLastModifiedTime(file, now);
+    }
+
+    void write(Path archive, Index index) {
+        try {
+            Files.createDirectories(directory);
+            Path file = file(archive);
+            Path tmp = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+            try {
+                try (OutputStream outputStream = Files.newOutputStream(tmp)) {
+                    new IndexWriter(outputStream).write(index);
+                }
+                move(tmp, file);
+            } finally {
+                Files.deleteIfExists(tmp);
+            }
+            deleteOtherVersions(archive, file);
+        } catch (IOException e) {
+            LOG.warning("can't write cached index of " + archive + ": " + e);
+        }
+    }
+
+    private void deleteOtherVersions(Path archive, Path file) throws IOException {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, prefix(archive) + "-*.idx")) {
+            for (Path other : files)
+                if (!other.equals(file))
+                    Files.deleteIfExists(other);
+        }
+    }
+
+    /** Delete the files that have not been used for the {@link #MAX_AGE} */
+    void cleanUp() {
+        if (!Files.isDirectory(directory))
+            return;
+        long oldest = System.currentTimeMillis() - MAX_AGE.toMillis();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*.idx")) {
+            for (Path file : files)
+                if (Files.getLastModifiedTime(file).toMillis() < oldest)
+                    Files.deleteIfExists(file);
+        } catch (IOException e) {
+            LOG.warning("can't clean up index cache " + directory + ": " + e);
+        }
+    }
+
+    private static void move(Path from, Path to) throws IOException {
+        try {
+            Files.move(from, to, ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(from, to, REPLACE_EXISTING);
+        }
+    }
+
+    private Path file(Path archive) throws IOException {
+        return directory.resolve(prefix(archive) + "-" + Files.size(archive) + "-" + Files.getLastModifiedTime(archive).toMillis() + ".idx");
+    }
+
+    private static String prefix(Path archive) {
+        return archive.getFileName() + "-" + sha1(archive.toAbsolutePath().toString());
+    }
+
+    private static String sha1(String string) {
+        try {
+            StringBuilder out = new StringBuilder();
+            for (byte b : MessageDigest.getInstance("SHA-1").digest(string.getBytes(UTF_8)))
+                out.append(String.format("%02x", b));
+            return out.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException("can't hash", e);
+        }
+    }
+
+    private static final Logger LOG = Logger.getLogger(IndexCache.class.getName());
+}
@@ -1,8 +1,10 @@
 package com.github.t1.annotations.index;
 
+import org.jboss.jandex.DotName;
 import org.jboss.jandex.Index;
 import org.jboss.jandex.IndexView;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.MalformedURLException;
@@ -12,31 +14,156 @@ import java.net.URLClassLoader;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Logger;
+import java.util.stream.IntStream;
 import java.util.stream.Stream;
 import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
 import java.util.zip.ZipInputStream;
 
 import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Comparator.comparing;
+import static java.util.stream.Collectors.toCollection;
+import static java.util.stream.Collectors.toList;
+import static java.util.stream.Collectors.toSet;
 
+/**
+ * Scans the class path with a pool of {@link IndexerConfig#threads() threads}, indexing every archive and folder
+ * into its own Jandex index, and merges the results in class path order when all of them are done.
+ * If configured, the indexes of archives are {@link IndexCache cached}; folders are always scanned.
+ */
 class Indexer {
-    private final org.jboss.jandex.Indexer indexer = new org.jboss.jandex.Indexer();
-    private final IndexerConfig config = new IndexerConfig();
-    private int archivesIndexed;
-    private int classesIndexed;
+    private final IndexerConfig config;
+    /** <code>null</code> if archives are not cached */
+    private final IndexCache cache;
+
+    Indexer() { this(new IndexerConfig()); }
+
+    Indexer(IndexerConfig config) {
+        this.config = config;
+        this.cache = config.cache().map(IndexCache::new).orElse(null);
+    }
 
     IndexView scanClassPath() {
+        return scan(urls());
+    }
+
+    /** Scan only the class path entries that are not already indexed */
+    IndexView scanClassPathWithout(Collection<URL> indexed) {
+        Set<Object> keys = indexed.stream().map(Indexer::key).collect(toSet());
+        return scan(urls().filter(url -> !keys.contains(key(url))));
+    }
+
+    /** The urls of the same jar or folder can be written differently, e.g. with or without escaping */
+    static Object key(URL url) {
+        if ("file".equals(url.getProtocol())) {
+            try {
+                return Paths.get(url.toURI()).toAbsolutePath().normalize();
+            } catch (URISyntaxException | RuntimeException e) {
+                // fall through
+            }
+        }
+        return url.toString();
+    }
+
+    IndexView scan(Stream<URL> urls) {
         long t0 = System.currentTimeMillis();
-        urls()
+        List<URL> entries = urls
             .distinct()
             .filter(this::include)
-            .forEach(this::index);
-        Index index = indexer.complete();
-        LOG.info("scanned " + archivesIndexed + " archives with " + classesIndexed + " classes " +
-            "in " + (System.currentTimeMillis() - t0) + "ms");
+            .collect(toList());
+        Queue<Integer> queue = IntStream.range(0, entries.size()).boxed()
+            .collect(toCollection(ConcurrentLinkedQueue::new));
+        Index[] indexes = new Index[entries.size()];
+        int threads = Math.max(1, Math.min(config.threads(), entries.size()));
+        List<Worker> workers = Stream.generate(() -> new Worker(entries, queue, indexes)).limit(threads).collect(toList());
+        if (threads == 1)
+            workers.get(0).call();
+        else
+            scanInParallel(workers);
+        Index index = (indexes.length == 1) ? indexes[0] : merge(Arrays.asList(indexes));
+        if (cache != null)
+            cache.cleanUp();
+        LOG.info("scanned " + workers.stream().mapToInt(worker -> worker.archivesIndexed).sum() + " archives"
+            + " and " + workers.stream().mapToInt(worker -> worker.archivesCached).sum() + " cached archives"
+            + " with " + workers.stream().mapToInt(worker -> worker.classesIndexed).sum() + " classes"
+            + " in " + (System.currentTimeMillis() - t0) + "ms with " + threads + " threads");
         return index;
     }
 
+    private void scanInParallel(List<Worker> workers) {
+        AtomicInteger threadNumber = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(workers.size(), runnable -> {
+            Thread thread = new Thread(runnable, "power-annotations-indexer-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            List<Future<Void>> futures = new ArrayList<>();
+            for (Worker worker : workers)
+                futures.add(executor.submit(worker));
+            for (Future<Void> future : futures)
+                future.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException)
+                throw (RuntimeException) e.getCause();
+            throw new RuntimeException("can't scan class path", e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("interrupted while scanning class path", e);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Combine the indexes into one, with the lists sorted by class name. If a class is found more than once,
+     * the one from the first index wins, just like the first class path entry wins when loading the class.
+     */
+    static Index merge(Collection<? extends IndexView> indexes) {
+        Map<DotName, org.jboss.jandex.ClassInfo> classes = new HashMap<>();
+        indexes.stream()
+            .flatMap(index -> index.getKnownClasses().stream())
+            .forEach(classInfo -> classes.putIfAbsent(classInfo.name(), classInfo));
+
+        Map<DotName, List<org.jboss.jandex.AnnotationInstance>> annotations = new HashMap<>();
+        Map<DotName, List<org.jboss.jandex.ClassInfo>> subclasses = new HashMap<>();
+        Map<DotName, List<org.jboss.jandex.ClassInfo>> implementors = new HashMap<>();
+        classes.values().stream()
+            .sorted(comparing(classInfo -> classInfo.name().toString()))
+            .forEach(classInfo -> {
+                classInfo.annotations().forEach((name, instances) ->
+                    annotations.computeIfAbsent(name, n -> new ArrayList<>()).addAll(instances));
+                if (classInfo.superName() != null)
+                    subclasses.computeIfAbsent(classInfo.superName(), n -> new ArrayList<>()).add(classInfo);
+                classInfo.interfaceNames().forEach(interfaceName ->
+                    implementors.computeIfAbsent(interfaceName, n -> new ArrayList<>()).add(classInfo));
+            });
+        return Index.create(annotations, subclasses, implementors, classes);
+    }
+
+    /** The entries of the class path that are not excluded */
+    Stream<URL> classPathEntries() {
+        return urls().filter(this::include);
+    }
+
     private Stream<URL> urls() {
         ClassLoader classLoader = ClassLoader.getSystemClassLoader();
         if (classLoader instanceof URLClassLoader) {
@@ -63,64 +190,202 @@ class Indexer {
         return config.excludes().noneMatch(urlString::matches);
     }
 
-    private void index(URL url) {
-        try {
-            long t0 = System.currentTimeMillis();
-            int classesIndexedBefore = classesIndexed;
-            if (url.toString().endsWith(".jar") || url.toString().endsWith(".war"))
-                indexArchive(url.openStream());
-            else
-                indexFolder(url);
-            LOG.info("indexed " + (classesIndexed - classesIndexedBefore) + " classes in " + url
-                + " in " + (System.currentTimeMillis() - t0) + " ms");
-        } catch (IOException e) {
-            throw new RuntimeException("can't index " + url, e);
+    /**
+     * Indexes the entries from the shared queue of positions, until the queue is empty,
+     * and stores the index of every entry at its position, so they can be merged in class path order.
+     */
+    private class Worker implements Callable<Void> {
+        private final List<URL> entries;
+        private final Queue<Integer> queue;
+        private final Index[] indexes;
+        private byte[] buffer = new byte[64 * 1024];
+        private int archivesIndexed;
+        private int archivesCached;
+        private int classesIndexed;
+
+        private Worker(List<URL> entries, Queue<Integer> queue, Index[] indexes) {
+            this.entries = entries;
+            this.queue = queue;
+            this.indexes = indexes;
         }
-    }
 
-    private void indexArchive(InputStream inputStream) throws IOException {
-        archivesIndexed++;
-        ZipInputStream zipInputStream = new ZipInputStream(inputStream, UTF_8);
-        while (true) {
-            ZipEntry entry = zipInputStream.getNextEntry();
-            if (entry == null)
-                break;
-            String entryName = entry.getName();
-            indexFile(entryName, zipInputStream);
+        @Override public Void call() {
+            for (Integer position = queue.poll(); position != null; position = queue.poll())
+                indexes[position] = index(entries.get(position));
+            return null;
+        }
+
+        private Index index(URL url) {
+            try {
+                long t0 = System.currentTimeMillis();
+                int classesIndexedBefore = classesIndexed;
+                String from = "";
+                Index index;
+                if (!isArchive(url.toString()))
+                    index = indexed(indexer -> indexFolder(url, indexer));
+                else if (!"file".equals(url.getProtocol()))
+                    try (InputStream inputStream = url.openStream()) {
+                        index = indexed(indexer -> indexArchive(inputStream, indexer));
+                    }
+                else if (cache == null) {
+                    Path archive = Paths.get(url.toURI());
+                    index = indexed(indexer -> indexArchive(archive, indexer));
+                } else {
+                    Path archive = Paths.get(url.toURI());
+                    Optional<Index> cached = cache.read(archive);
+                    if (cached.isPresent())
+                        from = " from cache";
+                    index = cached.isPresent() ? cached(cached.get()) : indexAndCache(archive);
+                }
+                LOG.info("indexed " + (classesIndexed - classesIndexedBefore) + " classes in " + url + from
+                    + " in " + (System.currentTimeMillis() - t0) + " ms");
+                return index;
+            } catch (IOException | URISyntaxException e) {
+                throw new RuntimeException("can't index " + url, e);
+            }
         }
-    }
 
-    private void indexFile(String fileName, InputStream inputStream) throws IOException {
-        if (fileName.endsWith(".class")) {
-            classesIndexed++;
-            indexer.index(inputStream);
-        } else if (fileName.endsWith(".war")) {
-            // necessary because of the Thorntail arquillian adapter
-            indexArchive(inputStream);
+        private Index cached(Index index) {
+            archivesCached++;
+            classesIndexed += index.getKnownClasses().size();
+            return index;
         }
-    }
 
-    private void indexFolder(URL url) throws IOException {
-        try {
-            Path folderPath = Paths.get(url.toURI());
-            if (Files.isDirectory(folderPath)) {
-                try (Stream<Path> walk = Files.walk(folderPath)) {
-                    walk.filter(Files::isRegularFile)
-                        .forEach(this::indexFile);
+        /** Even archives without annotations are cached, as we need their class structure, e.g. for super types */
+        private Index indexAndCache(Path archive) throws IOException {
+            Index index = indexed(indexer -> indexArchive(archive, indexer));
+            cache.write(archive, index);
+            return index;
+        }
+
+        /** Use the central directory, so we only have to inflate the entries we actually need */
+        private void indexArchive(Path archive, org.jboss.jandex.Indexer indexer) throws IOException {
+            archivesIndexed++;
+            try (ZipFile zipFile = new ZipFile(archive.toFile(), UTF_8)) {
+                Enumeration<? extends ZipEntry> entries = zipFile.entries();
+                while (entries.hasMoreElements()) {
+                    ZipEntry entry = entries.nextElement();
+                    if (isRelevant(entry.getName()))
+                        try (InputStream inputStream = zipFile.getInputStream(entry)) {
+                            indexEntry(entry.getName(), inputStream, entry.getSize(), indexer);
+                        }
                 }
             }
-        } catch (URISyntaxException e) {
-            throw new RuntimeException("invalid folder url " + url, e);
         }
-    }
 
-    private void indexFile(Path path) {
-        try {
-            String entryName = path.getFileName().toString();
-            indexFile(entryName, Files.newInputStream(path));
-        } catch (IOException e) {
-            throw new RuntimeException("can't index path " + path, e);
+        /** Nested archives are already in memory, so we don't have to stream through all their entries */
+        private void indexArchive(byte[] bytes, org.jboss.jandex.Indexer indexer) throws IOException {
+            Optional<InMemoryZip> zip = InMemoryZip.of(bytes);
+            if (!zip.isPresent()) {
+                indexArchive(new ByteArrayInputStream(bytes), indexer);
+                return;
+            }
+            archivesIndexed++;
+            for (InMemoryZip.Entry entry : zip.get().entries())
+                if (isRelevant(entry.name))
+                    try (InputStream inputStream = zip.get().open(entry)) {
+                        indexEntry(entry.name, inputStream, entry.size, indexer);
+                    }
+        }
+
+        /** The fallback for archives that are not files */
+        private void indexArchive(InputStream inputStream, org.jboss.jandex.Indexer indexer) throws IOException {
+            archivesIndexed++;
+            ZipInputStream zipInputStream = new ZipInputStream(inputStream, UTF_8);
+            while (true) {
+                ZipEntry entry = zipInputStream.getNextEntry();
+                if (entry == null)
+                    break;
+                if (isRelevant(entry.getName()))
+                    indexEntry(entry.getName(), zipInputStream, entry.getSize(), indexer);
+            }
+        }
+
+        private void indexEntry(String name, InputStream inputStream, long size, org.jboss.jandex.Indexer indexer) throws IOException {
+            int length = read(inputStream, size);
+            if (isClass(name)) {
+                classesIndexed++;
+                indexer.index(new ByteArrayInputStream(buffer, 0, length));
+            } else {
+                // the buffer is reused for the entries of the nested archive
+                indexArchive(Arrays.copyOf(buffer, length), indexer);
+            }
+        }
+
+        /**
+         * Read the complete stream into the buffer that is reused for all entries. It only grows, if the stream
+         * is actually longer than the buffer, i.e. not when it ends exactly at the end of the buffer.
+         */
+        private int read(InputStream inputStream, long size) throws IOException {
+            if (size > buffer.length)
+                buffer = new byte[(int) size];
+            int length = 0;
+            while (true) {
+                if (length == buffer.length) {
+                    int next = inputStream.read();
+                    if (next < 0)
+                        return length;
+                    buffer = Arrays.copyOf(buffer, buffer.length * 2);
+                    buffer[length++] = (byte) next;
+                }
+                int read = inputStream.read(buffer, length, buffer.length - length);
+                if (read < 0)
+                    return length;
+                length += read;
+            }
+        }
+
+        private void indexFolder(URL url, org.jboss.jandex.Indexer indexer) throws IOException {
+            try {
+                Path folderPath = Paths.get(url.toURI());
+                if (Files.isDirectory(folderPath)) {
+                    try (Stream<Path> walk = Files.walk(folderPath)) {
+                        walk.filter(Files::isRegularFile)
+                            .forEach(path -> indexFile(folderPath, path, indexer));
+                    }
+                }
+            } catch (URISyntaxException e) {
+                throw new RuntimeException("invalid folder url " + url, e);
+            }
         }
+
+        private void indexFile(Path folder, Path path, org.jboss.jandex.Indexer indexer) {
+            String name = folder.relativize(path).toString().replace(path.getFileSystem().getSeparator(), "/");
+            if (isRelevant(name)) {
+                try (InputStream inputStream = Files.newInputStream(path)) {
+                    indexEntry(name, inputStream, Files.size(path), indexer);
+                } catch (IOException e) {
+                    throw new RuntimeException("can't index path " + path, e);
+                }
+            }
+        }
+    }
+
+    private interface Indexing {
+        void into(org.jboss.jandex.Indexer indexer) throws IOException;
+    }
+
+    private static Index indexed(Indexing indexing) throws IOException {
+        org.jboss.jandex.Indexer indexer = new org.jboss.jandex.Indexer();
+        indexing.into(indexer);
+        return indexer.complete();
+    }
+
+    private static boolean isArchive(String name) {
+        return name.endsWith(".jar") || name.endsWith(".war");
+    }
+
+    private static boolean isRelevant(String name) {
+        return isClass(name) || isNestedArchive(name);
+    }
+
+    private static boolean isClass(String name) {
+        return name.endsWith(".class");
+    }
+
+    private static boolean isNestedArchive(String name) {
+        return name.endsWith(".war") // necessary because of the Thorntail arquillian adapter
+            || (name.endsWith(".jar") && (name.startsWith("BOOT-INF/lib/") || name.startsWith("WEB-INF/lib/")));
     }
 
     private static final Logger LOG = Logger.getLogger(Indexer.class.getName());
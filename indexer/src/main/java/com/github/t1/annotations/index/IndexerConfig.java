@@ -2,8 +2,12 @@ package com.github.t1.annotations.index;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Optional;
 import java.util.Properties;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -11,6 +15,8 @@ import java.util.stream.Stream;
 
 class IndexerConfig {
     private final List<String> exclude = new ArrayList<>();
+    private int threads = Runtime.getRuntime().availableProcessors();
+    private Path cache;
 
     IndexerConfig() { this("META-INF/jandex.properties"); }
 
@@ -21,6 +27,8 @@ class IndexerConfig {
             Properties properties = new Properties();
             properties.load(inputStream);
             loadExcludeConfig(properties);
+            loadThreadsConfig(properties);
+            loadCacheConfig(properties);
         } catch (IOException e) {
             throw new RuntimeException("can't load " + resource, e);
         }
@@ -39,6 +47,30 @@ class IndexerConfig {
         }
     }
 
+    private void loadThreadsConfig(Properties properties) {
+        String threadsString = properties.getProperty("threads", null);
+        if (threadsString != null) {
+            try {
+                this.threads = Integer.parseInt(threadsString.trim());
+            } catch (NumberFormatException e) {
+                throw new RuntimeException("can't parse threads config", e);
+            }
+            if (threads < 1)
+                throw new RuntimeException("expect at least 1 thread but found " + threads);
+        }
+    }
+
+    private void loadCacheConfig(Properties properties) {
+        String cacheString = properties.getProperty("cache", null);
+        if (cacheString != null && !cacheString.trim().isEmpty()) {
+            try {
+                this.cache = Paths.get(cacheString.trim());
+            } catch (InvalidPathException e) {
+                throw new RuntimeException("can't parse cache config", e);
+            }
+        }
+    }
+
     private String gavToRegex(String groupArtifact) {
         Matcher matcher = Pattern.compile("(?<group>[^:]+):(?<artifact>[^:]+)").matcher(groupArtifact);
         if (!matcher.matches())
@@ -47,4 +79,10 @@ class IndexerConfig {
     }
 
     public Stream<String> excludes() { return exclude.stream(); }
+
+    /** The number of threads to scan the class path with; defaults to the number of processors */
+    public int threads() { return threads; }
+
+    /** The directory to cache the indexes of scanned archives in; empty if they should not be cached */
+    public Optional<Path> cache() { return Optional.ofNullable(cache); }
 }
@@ -0,0 +1,89 @@
+package com.github.t1.annotations.index;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Load classes by name only once per class loader, i.e. annotation types and <code>Class</code> annotation values.
+ * The class loaders and the classes are only weakly referenced, so redeployments don't leak.
+ * Several threads can load classes concurrently, without a global lock.
+ * The classes are not initialized, as we only need the <code>Class</code> literals.
+ */
+public class LoadedClasses {
+    private static final Map<LoaderKey, Map<String, WeakReference<Class<?>>>> CACHE = new ConcurrentHashMap<>();
+    private static final ReferenceQueue<ClassLoader> COLLECTED = new ReferenceQueue<>();
+    /** Most lookups come from the same class loader; this saves the {@link LoaderKey} allocation for them */
+    private static volatile LastUsed lastUsed;
+
+    /** Weakly references a class loader, but compares by identity, like a <code>WeakHashMap</code> would */
+    private static class LoaderKey extends WeakReference<ClassLoader> {
+        private final int hash;
+
+        private LoaderKey(ClassLoader classLoader, ReferenceQueue<ClassLoader> queue) {
+            super(classLoader, queue);
+            this.hash = System.identityHashCode(classLoader);
+        }
+
+        @Override public boolean equals(Object other) {
+            if (this == other)
+                return true;
+            if (!(other instanceof LoaderKey))
+                return false;
+            ClassLoader classLoader = get();
+            return classLoader != null && classLoader == ((LoaderKey) other).get();
+        }
+
+        @Override public int hashCode() { return hash; }
+    }
+
+    /** Holds only weak references to the classes, so it doesn't keep the class loader alive */
+    private static class LastUsed extends WeakReference<ClassLoader> {
+        private final Map<String, WeakReference<Class<?>>> classes;
+
+        private LastUsed(ClassLoader classLoader, Map<String, WeakReference<Class<?>>> classes) {
+            super(classLoader);
+            this.classes = classes;
+        }
+    }
+
+    /** Load from the context class loader of the current thread, or the system class loader, if there is none */
+    public static Class<?> load(String className) throws ClassNotFoundException {
+        return load(className, contextClassLoader());
+    }
+
+    public static Class<?> load(String className, ClassLoader classLoader) throws ClassNotFoundException {
+        Map<String, WeakReference<Class<?>>> classes = classesOf(classLoader);
+        WeakReference<Class<?>> reference = classes.get(className);
+        Class<?> type = (reference == null) ? null : reference.get();
+        if (type == null) {
+            type = Class.forName(className, false, classLoader);
+            classes.put(className, new WeakReference<>(type));
+        }
+        return type;
+    }
+
+    private static Map<String, WeakReference<Class<?>>> classesOf(ClassLoader classLoader) {
+        removeCollected();
+        LastUsed lastUsed = LoadedClasses.lastUsed;
+        if (lastUsed != null && classLoader != null && lastUsed.get() == classLoader)
+            return lastUsed.classes;
+        Map<String, WeakReference<Class<?>>> classes = CACHE.get(new LoaderKey(classLoader, null));
+        if (classes == null)
+            classes = CACHE.computeIfAbsent(new LoaderKey(classLoader, COLLECTED), key -> new ConcurrentHashMap<>());
+        LoadedClasses.lastUsed = new LastUsed(classLoader, classes); // the race is benign, as any map of the loader is the same
+        return classes;
+    }
+
+    private static void removeCollected() {
+        for (Reference<?> key = COLLECTED.poll(); key != null; key = COLLECTED.poll())
+            CACHE.remove(key);
+    }
+
+    public static ClassLoader contextClassLoader() {
+        ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+        return (classLoader == null) ? ClassLoader.getSystemClassLoader() : classLoader;
+    }
+}
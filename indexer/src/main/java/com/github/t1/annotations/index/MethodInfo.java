@@ -12,21 +12,25 @@ import java.util.stream.Stream;
 import static com.github.t1.annotations.index.Utils.toArray;
 import static java.lang.annotation.ElementType.METHOD;
 import static java.util.Objects.requireNonNull;
-import static java.util.stream.Collectors.joining;
 
 public class MethodInfo extends AnnotationTarget {
     private final ClassInfo declaringClass;
     private final org.jboss.jandex.MethodInfo delegate;
+    private final MethodSignature methodSignature;
 
     MethodInfo(ClassInfo declaringClass, org.jboss.jandex.MethodInfo delegate) {
         super(declaringClass.index);
         this.declaringClass = requireNonNull(declaringClass);
         this.delegate = requireNonNull(delegate);
+        this.methodSignature = MethodSignature.of(delegate);
     }
 
     @Override public String toString() { return declaringClass.name() + "." + signature(); }
 
-    public String signature() { return signature(delegate); }
+    public String signature() { return methodSignature.toString(); }
+
+    /** The key to look up this method, e.g. in {@link ClassInfo#findMethod(MethodSignature)} */
+    public MethodSignature methodSignature() { return methodSignature; }
 
     @Override public boolean equals(Object o) {
         if (this == o)
@@ -44,7 +48,11 @@ public class MethodInfo extends AnnotationTarget {
     @Override public String name() { return delegate.name(); }
 
     @Override protected Stream<org.jboss.jandex.AnnotationInstance> rawAnnotations() {
-        return delegate.annotations().stream()
+        return rawAnnotations(delegate);
+    }
+
+    static Stream<org.jboss.jandex.AnnotationInstance> rawAnnotations(org.jboss.jandex.MethodInfo methodInfo) {
+        return methodInfo.annotations().stream()
             .filter(instance -> instance.target().kind() == Kind.METHOD); // Jandex also returns METHOD_PARAMETER or TYPE
     }
 
@@ -54,6 +62,13 @@ public class MethodInfo extends AnnotationTarget {
 
     public boolean isNotConstructor() { return !isConstructor(); }
 
+    /** the access flags from the JVM spec; {@link java.lang.reflect.Modifier} doesn't expose them */
+    private static final short SYNTHETIC = 0x1000;
+    private static final short BRIDGE = 0x0040;
+
+    /** Generated by the compiler, e.g. bridge methods; they don't exist in the source, so they can't be annotated */
+    public boolean isSynthetic() { return (delegate.flags() & (SYNTHETIC | BRIDGE)) != 0; }
+
     public boolean hasNoAnnotations() { return delegate.annotations().isEmpty(); }
 
     public AnnotationValue defaultValue() { return delegate.defaultValue(); }
@@ -62,15 +77,7 @@ public class MethodInfo extends AnnotationTarget {
 
     public ClassInfo declaringClass() { return declaringClass; }
 
-    static String signature(org.jboss.jandex.MethodInfo methodInfo) {
-        return signature(methodInfo.name(), parameterTypeNames(methodInfo));
-    }
-
-    static String signature(String methodName, String... parameterTypeNames) {
-        return methodName + Stream.of(parameterTypeNames).collect(joining(", ", "(", ")"));
-    }
-
-    private static String[] parameterTypeNames(org.jboss.jandex.MethodInfo methodInfo) {
+    static String[] parameterTypeNames(org.jboss.jandex.MethodInfo methodInfo) {
         return methodInfo.parameters().stream()
             .map(Type::name)
             .map(DotName::toString)
@@ -0,0 +1,115 @@
+package com.github.t1.annotations.index;
+
+import org.jboss.jandex.DotName;
+import org.jboss.jandex.Type;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static com.github.t1.annotations.index.Utils.toDotName;
+import static java.util.stream.Collectors.joining;
+
+/**
+ * The name and the parameter types of a method, as the key for method lookups, i.e. without building strings:
+ * the hash code is computed only once, and the {@link #toString() string form} only when it's needed.
+ */
+public final class MethodSignature {
+    private static final DotName[] NO_PARAMETERS = new DotName[0];
+
+    public static MethodSignature of(String methodName, Class<?>... parameterTypes) {
+        DotName[] parameterTypeNames = new DotName[parameterTypes.length];
+        for (int i = 0; i < parameterTypes.length; i++)
+            parameterTypeNames[i] = toDotName(parameterTypes[i]);
+        return new MethodSignature(methodName, parameterTypeNames);
+    }
+
+    public static MethodSignature of(String methodName, String... parameterTypeNames) {
+        DotName[] dotNames = new DotName[parameterTypeNames.length];
+        for (int i = 0; i < parameterTypeNames.length; i++)
+            dotNames[i] = toDotName(parameterTypeNames[i]);
+        return new MethodSignature(methodName, dotNames);
+    }
+
+    static MethodSignature of(org.jboss.jandex.MethodInfo methodInfo) {
+        List<Type> parameters = methodInfo.parameters();
+        DotName[] parameterTypeNames = parameters.isEmpty() ? NO_PARAMETERS : new DotName[parameters.size()];
+        for (int i = 0; i < parameterTypeNames.length; i++)
+            parameterTypeNames[i] = parameters.get(i).name();
+        return new MethodSignature(methodInfo.name(), parameterTypeNames);
+    }
+
+    private final String name;
+    private final DotName[] parameterTypeNames;
+    private final int hashCode;
+    private String string;
+
+    private MethodSignature(String name, DotName[] parameterTypeNames) {
+        this.name = name;
+        this.parameterTypeNames = parameterTypeNames;
+        // DotName hash codes are the same for simple and componentized names, and they are cached
+        this.hashCode = 31 * name.hashCode() + Arrays.hashCode(parameterTypeNames);
+    }
+
+    public String name() { return name; }
+
+    /** e.g. <code>foo(java.lang.String[], int)</code>, i.e. the parameter types as by {@link Class#getTypeName()} */
+    @Override public String toString() {
+        String string = this.string;
+        if (string == null) // the race is benign, as the result is always the same
+            this.string = string = name + Stream.of(parameterTypeNames).map(MethodSignature::typeName).collect(joining(", ", "(", ")"));
+        return string;
+    }
+
+    /** Jandex and {@link Class#getName()} name arrays like <code>[Ljava.lang.String;</code> */
+    private static String typeName(DotName dotName) {
+        String name = dotName.toString();
+        int dimensions = 0;
+        while (name.charAt(dimensions) == '[')
+            dimensions++;
+        if (dimensions == 0)
+            return name;
+        StringBuilder out = new StringBuilder(componentTypeName(name.substring(dimensions)));
+        for (int i = 0; i < dimensions; i++)
+            out.append("[]");
+        return out.toString();
+    }
+
+    private static String componentTypeName(String descriptor) {
+        switch (descriptor.charAt(0)) {
+            case 'Z':
+                return "boolean";
+            case 'B':
+                return "byte";
+            case 'C':
+                return "char";
+            case 'S':
+                return "short";
+            case 'I':
+                return "int";
+            case 'J':
+                return "long";
+            case 'F':
+                return "float";
+            case 'D':
+                return "double";
+            case 'L':
+                return descriptor.substring(1, descriptor.length() - 1);
+            default:
+                throw new IllegalArgumentException("invalid array component type " + descriptor);
+        }
+    }
+
+    @Override public boolean equals(Object other) {
+        if (this == other)
+            return true;
+        if (!(other instanceof MethodSignature))
+            return false;
+        MethodSignature that = (MethodSignature) other;
+        return hashCode == that.hashCode
+            && name.equals(that.name)
+            && Arrays.equals(parameterTypeNames, that.parameterTypeNames);
+    }
+
+    @Override public int hashCode() { return hashCode; }
+}
@@ -0,0 +1,296 @@
+package com.github.t1.annotations.index;
+
+import org.jboss.jandex.IndexReader;
+import org.jboss.jandex.IndexView;
+import org.jboss.jandex.IndexWriter;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+
+import static com.github.t1.annotations.index.AnnotationInstance.resolveRepeatables;
+import static com.github.t1.annotations.index.Utils.toDotName;
+import static java.util.Collections.newSetFromMap;
+import static java.util.stream.Collectors.toList;
+
+/**
+ * The file format of an {@link Index} with all annotations already resolved: the names of the class path entries
+ * it was built from, so we can tell if it covers the class path it's used with; then the Jandex index,
+ * followed by the annotations of all targets that differ from what's declared in the class files.
+ * Every annotation is written as a reference to the target it's declared on, its type, and its position
+ * among the annotations of that type (Jandex doesn't keep the order of annotations of different types).
+ * So we don't have to write the annotation values, and the annotations are still backed by Jandex.
+ */
+class ResolvedIndexFile {
+    static final String RESOURCE = "META-INF/power-annotations.idx";
+
+    private static final int MAGIC = 0x50414958; // "PAIX"
+    private static final byte VERSION = 2;
+
+    private static final byte CLASS = 'C';
+    private static final byte FIELD = 'F';
+    private static final byte METHOD = 'M';
+
+    static void write(Index index, OutputStream outputStream) throws IOException {
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(outputStream));
+        out.writeInt(MAGIC);
+        out.writeByte(VERSION);
+        out.writeInt(index.classPathEntries.size());
+        for (String entry : index.classPathEntries)
+            out.writeUTF(entry);
+        writeJandex(index.jandex, out);
+
+        List<AnnotationTarget> targets = index.materializedClasses()
+            .flatMap(ResolvedIndexFile::targets)
+            .filter(ResolvedIndexFile::differsFromDeclared)
+            .collect(toList());
+        Map<org.jboss.jandex.AnnotationTarget, List<AnnotationInstance>> declared = new HashMap<>();
+        out.writeInt(targets.size());
+        for (AnnotationTarget target : targets) {
+            writeTarget(target, out);
+            List<AnnotationInstance> annotations = target.getAnnotations();
+            out.writeInt(annotations.size());
+            Set<AnnotationInstance> written = newSetFromMap(new IdentityHashMap<>());
+            for (AnnotationInstance annotation : annotations) {
+                org.jboss.jandex.AnnotationTarget origin = annotation.delegate().target();
+                List<AnnotationInstance> sameType = declared.computeIfAbsent(origin, o -> declaredAnnotations(index, o)).stream()
+                    .filter(instance -> instance.typeName().equals(annotation.typeName()))
+                    .collect(toList());
+                int position = position(annotation, sameType, written);
+                if (position < 0)
+                    throw new IllegalStateException("can't find " + annotation + " on " + origin);
+                writeOrigin(origin, out);
+                out.writeUTF(annotation.typeName());
+                out.writeInt(position);
+            }
+        }
+        out.flush();
+    }
+
+    /**
+     * Repeated annotations can be equal, but each one has its own position, so we take the first equal one
+     * that we didn't already write for this target.
+     */
+    private static int position(AnnotationInstance annotation, List<AnnotationInstance> sameType, Set<AnnotationInstance> written) {
+        for (int i = 0; i < sameType.size(); i++)
+            if (sameType.get(i).equals(annotation) && written.add(sameType.get(i)))
+                return i;
+        return -1;
+    }
+
+    private static Stream<AnnotationTarget> targets(ClassInfo classInfo) {
+        return Stream.concat(Stream.of(classInfo), Stream.concat(classInfo.fields(), classInfo.methods()));
+    }
+
+    private static void writeJandex(IndexView jandex, DataOutputStream out) throws IOException {
+        if (!(jandex instanceof org.jboss.jandex.Index))
+            throw new IllegalStateException("can only write a complete Jandex index, but got a " + jandex.getClass().getName());
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        new IndexWriter(bytes).write((org.jboss.jandex.Index) jandex);
+        out.writeInt(bytes.size());
+        bytes.writeTo(out);
+    }
+
+    private static boolean differsFromDeclared(AnnotationTarget target) {
+        return !target.getAnnotations().equals(target.getDeclaredAnnotations());
+    }
+
+    private static void writeTarget(AnnotationTarget target, DataOutputStream out) throws IOException {
+        switch (target.elementType()) {
+            case TYPE:
+            case ANNOTATION_TYPE:
+                out.writeByte(CLASS);
+                out.writeUTF(target.name());
+                break;
+            case FIELD:
+                out.writeByte(FIELD);
+                out.writeUTF(((FieldInfo) target).declaringClass().name());
+                out.writeUTF(target.name());
+                break;
+            case METHOD:
+                out.writeByte(METHOD);
+                out.writeUTF(((MethodInfo) target).declaringClass().name());
+                writeMethod(target.name(), ((MethodInfo) target).parameterTypeNames(), out);
+                break;
+            default:
+                throw new UnsupportedOperationException("unsupported target type: " + target.elementType());
+        }
+    }
+
+    private static void writeOrigin(org.jboss.jandex.AnnotationTarget origin, DataOutputStream out) throws IOException {
+        switch (origin.kind()) {
+            case CLASS:
+                out.writeByte(CLASS);
+                out.writeUTF(origin.asClass().name().toString());
+                break;
+            case FIELD:
+                out.writeByte(FIELD);
+                out.writeUTF(origin.asField().declaringClass().name().toString());
+                out.writeUTF(origin.asField().name());
+                break;
+            case METHOD:
+                out.writeByte(METHOD);
+                out.writeUTF(origin.asMethod().declaringClass().name().toString());
+                writeMethod(origin.asMethod().name(), MethodInfo.parameterTypeNames(origin.asMethod()), out);
+                break;
+            default:
+                throw new UnsupportedOperationException("unsupported annotation target type: " + origin.kind());
+        }
+    }
+
+    private static void writeMethod(String name, String[] parameterTypeNames, DataOutputStream out) throws IOException {
+        out.writeUTF(name);
+        out.writeInt(parameterTypeNames.length);
+        for (String parameterTypeName : parameterTypeNames)
+            out.writeUTF(parameterTypeName);
+    }
+
+
+    /**
+     * The jar file name, as the same jar may be somewhere else at runtime, e.g. in a <code>WEB-INF/lib</code>;
+     * or the complete path of a folder, as those are mostly called <code>classes</code>.
+     */
+    static String entryName(URL entry) {
+        Object key = Indexer.key(entry);
+        if (!(key instanceof Path))
+            return key.toString();
+        Path path = (Path) key;
+        return Files.isDirectory(path) ? path.toString() : String.valueOf(path.getFileName());
+    }
+
+    /** @return <code>null</code>, if the class path entries it was built from are not <code>accepted</code> */
+    static Index read(InputStream inputStream, Predicate<Set<String>> accepted) throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(inputStream));
+        if (in.readInt() != MAGIC)
+            throw new IllegalArgumentException("Not a resolved power-annotations index");
+        byte version = in.readByte();
+        if (version != VERSION)
+            throw new IllegalArgumentException("unsupported resolved index version " + version);
+        List<String> classPathEntries = new ArrayList<>();
+        for (int i = in.readInt(); i > 0; i--)
+            classPathEntries.add(in.readUTF());
+        if (!accepted.test(new HashSet<>(classPathEntries)))
+            return null;
+        Index index = new Index(readJandex(in), true);
+        index.classPathEntries = classPathEntries;
+
+        Map<org.jboss.jandex.AnnotationTarget, List<AnnotationInstance>> declared = new HashMap<>();
+        int targetCount = in.readInt();
+        for (int i = 0; i < targetCount; i++) {
+            AnnotationTarget target = readTarget(index, in);
+            int annotationCount = in.readInt();
+            List<AnnotationInstance> annotations = new ArrayList<>(annotationCount);
+            for (int j = 0; j < annotationCount; j++) {
+                org.jboss.jandex.AnnotationTarget origin = readOrigin(index, in);
+                String typeName = in.readUTF();
+                int position = in.readInt();
+                annotations.add(declared.computeIfAbsent(origin, o -> declaredAnnotations(index, o)).stream()
+                    .filter(instance -> instance.typeName().equals(typeName))
+                    .skip(position)
+                    .findFirst()
+                    .orElseThrow(() -> new IllegalStateException("no annotation " + typeName + " #" + position + " on " + origin)));
+            }
+            target.setResolvedAnnotations(annotations);
+        }
+        return index;
+    }
+
+    private static IndexView readJandex(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return new IndexReader(new ByteArrayInputStream(bytes)).read();
+    }
+
+    private static AnnotationTarget readTarget(Index index, DataInputStream in) throws IOException {
+        byte kind = in.readByte();
+        ClassInfo classInfo = index.classInfo(in.readUTF());
+        switch (kind) {
+            case CLASS:
+                return classInfo;
+            case FIELD:
+                String fieldName = in.readUTF();
+                return classInfo.field(fieldName)
+                    .orElseThrow(() -> new IllegalStateException("no field " + fieldName + " in " + classInfo));
+            case METHOD:
+                String methodName = in.readUTF();
+                String[] parameterTypeNames = readParameterTypeNames(in);
+                return classInfo.method(methodName, parameterTypeNames)
+                    .orElseThrow(() -> new IllegalStateException("no method " + MethodSignature.of(methodName, parameterTypeNames) + " in " + classInfo));
+            default:
+                throw new IllegalStateException("unknown target kind " + kind);
+        }
+    }
+
+    private static org.jboss.jandex.AnnotationTarget readOrigin(Index index, DataInputStream in) throws IOException {
+        byte kind = in.readByte();
+        String className = in.readUTF();
+        org.jboss.jandex.ClassInfo classInfo = index.jandex.getClassByName(toDotName(className));
+        if (classInfo == null)
+            throw new IllegalStateException("no class " + className + " in index");
+        switch (kind) {
+            case CLASS:
+                return classInfo;
+            case FIELD:
+                String fieldName = in.readUTF();
+                org.jboss.jandex.FieldInfo field = classInfo.field(fieldName);
+                if (field == null)
+                    throw new IllegalStateException("no field " + fieldName + " in " + className);
+                return field;
+            case METHOD:
+                String methodName = in.readUTF();
+                String[] parameterTypeNames = readParameterTypeNames(in);
+                MethodSignature signature = MethodSignature.of(methodName, parameterTypeNames);
+                org.jboss.jandex.MethodInfo method = index.classInfo(classInfo.name()).declaredMethod(signature);
+                if (method == null)
+                    throw new IllegalStateException("no method " + signature + " in " + className);
+                return method;
+            default:
+                throw new IllegalStateException("unknown annotation target kind " + kind);
+        }
+    }
+
+    private static String[] readParameterTypeNames(DataInputStream in) throws IOException {
+        String[] parameterTypeNames = new String[in.readInt()];
+        for (int i = 0; i < parameterTypeNames.length; i++)
+            parameterTypeNames[i] = in.readUTF();
+        return parameterTypeNames;
+    }
+
+
+    private static List<AnnotationInstance> declaredAnnotations(Index index, org.jboss.jandex.AnnotationTarget target) {
+        return rawAnnotations(target)
+            .flatMap(instance -> resolveRepeatables(index, instance))
+            .collect(toList());
+    }
+
+    private static Stream<org.jboss.jandex.AnnotationInstance> rawAnnotations(org.jboss.jandex.AnnotationTarget target) {
+        switch (target.kind()) {
+            case CLASS:
+                return target.asClass().classAnnotations().stream();
+            case FIELD:
+                return target.asField().annotations().stream();
+            case METHOD:
+                return MethodInfo.rawAnnotations(target.asMethod());
+            default:
+                throw new UnsupportedOperationException("unsupported annotation target type: " + target.kind());
+        }
+    }
+}
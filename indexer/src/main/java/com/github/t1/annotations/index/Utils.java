@@ -7,7 +7,6 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 import java.util.Set;
-import java.util.TreeMap;
 import java.util.function.BiConsumer;
 import java.util.function.BinaryOperator;
 import java.util.function.Function;
@@ -27,29 +26,6 @@ public class Utils {
         return DotName.createSimple(typeName);
     }
 
-    static <T, K, U> Collector<T, TreeMap<K, U>, TreeMap<K, U>> toTreeMap(
-        Function<? super T, ? extends K> keyMapper,
-        Function<? super T, ? extends U> valueMapper) {
-        return new Collector<T, TreeMap<K, U>, TreeMap<K, U>>() {
-            @Override public Supplier<TreeMap<K, U>> supplier() { return TreeMap::new; }
-
-            @Override public BiConsumer<TreeMap<K, U>, T> accumulator() {
-                return (map, element) -> map.put(keyMapper.apply(element), valueMapper.apply(element));
-            }
-
-            @Override public BinaryOperator<TreeMap<K, U>> combiner() {
-                return (left, right) -> {
-                    left.putAll(right);
-                    return left;
-                };
-            }
-
-            @Override public Function<TreeMap<K, U>, TreeMap<K, U>> finisher() { return Function.identity(); }
-
-            @Override public Set<Characteristics> characteristics() { return emptySet(); }
-        };
-    }
-
     public static <T> Collector<T, List<T>, T[]> toArray(Class<T> componentType) {
         return new Collector<T, List<T>, T[]>() {
             @Override
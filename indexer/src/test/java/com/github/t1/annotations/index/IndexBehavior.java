@@ -0,0 +1,67 @@
+package com.github.t1.annotations.index;
+
+import org.junit.jupiter.api.Test;
+
+import java.net.URL;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.emptySet;
+import static java.util.Collections.singleton;
+import static org.assertj.core.api.BDDAssertions.then;
+
+class IndexBehavior {
+    @Test void shouldFindFolderOfIndexFile() throws Exception {
+        URL entry = Index.classPathEntry(new URL("file:/some/target/classes/META-INF/jandex.idx"), "META-INF/jandex.idx");
+
+        then(entry).hasToString("file:/some/target/classes/");
+    }
+
+    @Test void shouldFindArchiveOfIndexFile() throws Exception {
+        URL entry = Index.classPathEntry(new URL("jar:file:/some/repo/foo-1.0.jar!/META-INF/jandex.idx"), "META-INF/jandex.idx");
+
+        then(entry).hasToString("file:/some/repo/foo-1.0.jar");
+    }
+
+    @Test void shouldUseResolvedIndexFileThatCoversClassPath() throws Exception {
+        URL indexFile = new URL("jar:file:/some/app/app-1.0.jar!/META-INF/power-annotations.idx");
+        List<URL> classPath = asList(new URL("file:/some/app/app-1.0.jar"), new URL("file:/some/repo/foo-1.0.jar"));
+
+        then(Index.covers(singleton("foo-1.0.jar"), indexFile, classPath)).isTrue();
+    }
+
+    @Test void shouldNotUseResolvedIndexFileOfLibrary() throws Exception {
+        URL indexFile = new URL("jar:file:/some/repo/foo-1.0.jar!/META-INF/power-annotations.idx");
+        List<URL> classPath = asList(new URL("file:/some/app/app-1.0.jar"), new URL("file:/some/repo/foo-1.0.jar"));
+
+        then(Index.covers(emptySet(), indexFile, classPath)).isFalse();
+    }
+
+    @Test void shouldNotFreezeTargetsBeforeTheyAreNeeded() {
+        Index index = Index.load();
+
+        index.freeze();
+
+        then(index.classInfo(IndexBehavior.class).isFrozen()).isFalse();
+    }
+
+    @Test void shouldReuseMockOfUnknownClassAfterFreezing() {
+        Index index = Index.load();
+        index.freeze();
+
+        ClassInfo mock = index.classInfo("some.unknown.Type");
+
+        then(index.classInfo("some.unknown.Type")).isSameAs(mock);
+        then(mock.annotations()).isEmpty();
+    }
+
+    @Test void shouldFreezeAllTargetsWhenFindingThemByAnnotationType() {
+        Index index = Index.load();
+        index.freeze();
+
+        Stream<AnnotationTarget> targets = index.allTargetsAnnotatedWith(Test.class);
+
+        then(targets).isNotEmpty().allMatch(AnnotationTarget::isFrozen);
+    }
+}
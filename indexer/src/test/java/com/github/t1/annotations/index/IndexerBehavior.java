@@ -0,0 +1,228 @@
+package com.github.t1.annotations.index;
+
+import org.jboss.jandex.ClassInfo;
+import org.jboss.jandex.DotName;
+import org.jboss.jandex.FieldInfo;
+import org.jboss.jandex.IndexView;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static java.nio.charset.StandardCharsets.ISO_8859_1;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Comparator.reverseOrder;
+import static java.util.zip.ZipEntry.DEFLATED;
+import static java.util.zip.ZipEntry.STORED;
+
+import static java.util.stream.Collectors.toList;
+import static java.util.stream.Collectors.toSet;
+import static org.assertj.core.api.BDDAssertions.then;
+
+class IndexerBehavior {
+    private static final URL MAIN_CLASSES = url("target/classes");
+    private static final URL TEST_CLASSES = url("target/test-classes");
+    private static final URL JUNIT_API = Test.class.getProtectionDomain().getCodeSource().getLocation();
+    private static final String JUNIT_API_FILE_NAME = Paths.get(JUNIT_API.getPath()).getFileName().toString();
+
+    private static URL url(String path) { return url(Paths.get(path)); }
+
+    private static URL url(Path path) {
+        try {
+            return path.toUri().toURL();
+        } catch (MalformedURLException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Test void shouldScanInParallelLikeSequentially() {
+        IndexView sequential = new Indexer(new IndexerConfig("META-INF/one-thread.properties"))
+            .scan(Stream.of(MAIN_CLASSES, TEST_CLASSES));
+        IndexView parallel = new Indexer(new IndexerConfig("META-INF/threads.properties"))
+            .scan(Stream.of(MAIN_CLASSES, TEST_CLASSES));
+
+        then(classNames(parallel))
+            .contains(Indexer.class.getName(), IndexerBehavior.class.getName())
+            .isEqualTo(classNames(sequential));
+        then(parallel.getAnnotations(DotName.createSimple(Test.class.getName())))
+            .hasSameSizeAs(sequential.getAnnotations(DotName.createSimple(Test.class.getName())))
+            .isNotEmpty();
+        then(parallel.getKnownDirectImplementors(DotName.createSimple(Callable.class.getName())))
+            .extracting(ClassInfo::name).extracting(DotName::toString)
+            .containsExactly(Indexer.class.getName() + "$Worker");
+    }
+
+    private static Set<String> classNames(IndexView index) {
+        return index.getKnownClasses().stream().map(ClassInfo::name).map(DotName::toString).collect(toSet());
+    }
+
+    @Test void shouldCacheArchives() throws IOException {
+        Path cache = Paths.get("target/index-cache");
+        deleteRecursively(cache);
+        Path withoutAnnotations = createArchiveWithoutAnnotations();
+        Indexer indexer = new Indexer(new IndexerConfig("META-INF/cache.properties"));
+
+        IndexView scanned = indexer.scan(Stream.of(JUNIT_API, url(withoutAnnotations), TEST_CLASSES));
+        try (Stream<Path> files = Files.list(cache)) {
+            then(files.map(path -> path.getFileName().toString()))
+                .hasSize(2)
+                .anyMatch(fileName -> fileName.startsWith("without-annotations.jar-"))
+                .anyMatch(fileName -> fileName.startsWith(JUNIT_API_FILE_NAME));
+        }
+        IndexView cached = indexer.scan(Stream.of(JUNIT_API, url(withoutAnnotations), TEST_CLASSES));
+
+        then(classNames(cached))
+            .contains(Test.class.getName(), IndexerBehavior.class.getName(), IndexerConfig.class.getName())
+            .isEqualTo(classNames(scanned));
+        then(cached.getClassByName(DotName.createSimple(IndexerConfig.class.getName())).methods())
+            .describedAs("class structure of an archive without annotations")
+            .isNotEmpty();
+        then(cached.getAnnotations(DotName.createSimple(Test.class.getName())))
+            .hasSameSizeAs(scanned.getAnnotations(DotName.createSimple(Test.class.getName())));
+    }
+
+    @Test void shouldReplaceCachedIndexOfChangedArchive() throws IOException {
+        Path cache = Paths.get("target/index-cache");
+        deleteRecursively(cache);
+        Path archive = createArchiveWithoutAnnotations();
+        Indexer indexer = new Indexer(new IndexerConfig("META-INF/cache.properties"));
+        indexer.scan(Stream.of(url(archive)));
+
+        Files.setLastModifiedTime(archive, FileTime.fromMillis(Files.getLastModifiedTime(archive).toMillis() - 60_000));
+        indexer.scan(Stream.of(url(archive)));
+
+        try (Stream<Path> files = Files.list(cache)) {
+            then(files).hasSize(1);
+        }
+    }
+
+    @Test void shouldDeleteUnusedCacheFiles() throws IOException {
+        Path cache = Paths.get("target/index-cache");
+        deleteRecursively(cache);
+        Files.createDirectories(cache);
+        Path unused = Files.write(cache.resolve("unused.jar-0-0.idx"), new byte[0]);
+        Files.setLastModifiedTime(unused, FileTime.fromMillis(System.currentTimeMillis() - IndexCache.MAX_AGE.toMillis() - 60_000));
+        Path recent = Files.write(cache.resolve("recent.jar-0-0.idx"), new byte[0]);
+
+        new Indexer(new IndexerConfig("META-INF/cache.properties")).scan(Stream.of(TEST_CLASSES));
+
+        then(unused).doesNotExist();
+        then(recent).exists();
+    }
+
+    @SuppressWarnings("unused")
+    static class First {
+        String first;
+    }
+
+    @SuppressWarnings("unused")
+    static class Other {
+        String other;
+    }
+
+    @Test void shouldLetFirstClassPathEntryWin() throws IOException {
+        Path first = Files.write(Paths.get("target/first.jar"), zip(DEFLATED, First.class));
+        Path other = Files.write(Paths.get("target/other.jar"), zipRenamed(Other.class, First.class));
+        Indexer indexer = new Indexer(new IndexerConfig("META-INF/threads.properties"));
+
+        for (int i = 0; i < 10; i++) {
+            then(fieldNames(indexer.scan(Stream.of(url(first), url(other))), First.class)).containsExactly("first");
+            then(fieldNames(indexer.scan(Stream.of(url(other), url(first))), First.class)).containsExactly("other");
+        }
+    }
+
+    private static List<String> fieldNames(IndexView index, Class<?> type) {
+        return index.getClassByName(DotName.createSimple(type.getName())).fields().stream()
+            .map(FieldInfo::name).collect(toList());
+    }
+
+    @Test void shouldIndexNestedArchives() throws IOException {
+        Path war = Paths.get("target/nested.war");
+        try (ZipOutputStream out = new ZipOutputStream(Files.newOutputStream(war))) {
+            out.putNextEntry(new ZipEntry("index.html"));
+            out.write("<html/>".getBytes(UTF_8));
+            out.putNextEntry(new ZipEntry("WEB-INF/lib/inner.jar"));
+            out.write(zip(DEFLATED, IndexerBehavior.class, IndexerConfig.class));
+            out.putNextEntry(new ZipEntry("WEB-INF/lib/stored.jar"));
+            out.write(zip(STORED, Index.class));
+            out.putNextEntry(new ZipEntry("META-INF/other.jar")); // not a library
+            out.write(zip(DEFLATED, Indexer.class));
+        }
+
+        IndexView index = new Indexer(new IndexerConfig("META-INF/one-thread.properties")).scan(Stream.of(url(war)));
+
+        then(classNames(index)).containsExactlyInAnyOrder(
+            IndexerBehavior.class.getName(), IndexerConfig.class.getName(), Index.class.getName());
+        then(index.getAnnotations(DotName.createSimple(Test.class.getName()))).isNotEmpty();
+    }
+
+    private static byte[] zip(int method, Class<?>... classes) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ZipOutputStream out = new ZipOutputStream(bytes)) {
+            out.setMethod(method);
+            put(out, "META-INF/MANIFEST.MF", "Manifest-Version: 1.0\n".getBytes(UTF_8));
+            for (Class<?> type : classes)
+                put(out, type.getName().replace('.', '/') + ".class", Files.readAllBytes(classFile(type)));
+        }
+        return bytes.toByteArray();
+    }
+
+    /** The class file of one class, but with the name of another one with a name of the same length */
+    private static byte[] zipRenamed(Class<?> type, Class<?> as) throws IOException {
+        String classFile = new String(Files.readAllBytes(classFile(type)), ISO_8859_1);
+        byte[] renamed = classFile.replace(internalName(type), internalName(as)).getBytes(ISO_8859_1);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ZipOutputStream out = new ZipOutputStream(bytes)) {
+            put(out, internalName(as) + ".class", renamed);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static String internalName(Class<?> type) { return type.getName().replace('.', '/'); }
+
+    private static void put(ZipOutputStream out, String name, byte[] content) throws IOException {
+        ZipEntry entry = new ZipEntry(name);
+        CRC32 crc = new CRC32();
+        crc.update(content);
+        entry.setSize(content.length); // required for stored entries
+        entry.setCrc(crc.getValue());
+        out.putNextEntry(entry);
+        out.write(content);
+    }
+
+    private static Path classFile(Class<?> type) {
+        String entry = type.getName().replace('.', '/') + ".class";
+        Path main = Paths.get("target/classes").resolve(entry);
+        return Files.exists(main) ? main : Paths.get("target/test-classes").resolve(entry);
+    }
+
+    private static Path createArchiveWithoutAnnotations() throws IOException {
+        Path archive = Paths.get("target/without-annotations.jar");
+        try (ZipOutputStream out = new ZipOutputStream(Files.newOutputStream(archive))) {
+            String entry = IndexerConfig.class.getName().replace('.', '/') + ".class";
+            out.putNextEntry(new ZipEntry(entry));
+            out.write(Files.readAllBytes(Paths.get("target/classes").resolve(entry)));
+        }
+        return archive;
+    }
+
+    private static void deleteRecursively(Path path) throws IOException {
+        if (Files.exists(path))
+            try (Stream<Path> walk = Files.walk(path)) {
+                walk.sorted(reverseOrder()).forEach(file -> file.toFile().delete());
+            }
+    }
+}
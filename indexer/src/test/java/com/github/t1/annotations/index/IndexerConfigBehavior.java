@@ -2,10 +2,12 @@ package com.github.t1.annotations.index;
 
 import org.junit.jupiter.api.Test;
 
+import java.nio.file.Paths;
+
 import static org.assertj.core.api.Assertions.catchThrowable;
 import static org.assertj.core.api.BDDAssertions.then;
 
-class IndexerConfigTest {
+class IndexerConfigBehavior {
     @Test void shouldIgnoreUnknownResource() {
         IndexerConfig unknown = new IndexerConfig("unknown");
 
@@ -46,4 +48,42 @@ class IndexerConfigTest {
             ".*/baz/.*/bee-.*\\.jar"
         );
     }
+
+    @Test void shouldDefaultToOneThreadPerProcessor() {
+        IndexerConfig unknown = new IndexerConfig("unknown");
+
+        then(unknown.threads()).isEqualTo(Runtime.getRuntime().availableProcessors());
+    }
+
+    @Test void shouldLoadThreadsConfig() {
+        IndexerConfig config = new IndexerConfig("META-INF/threads.properties");
+
+        then(config.threads()).isEqualTo(3);
+    }
+
+    @Test void shouldFailToLoadUnparseableThreadsConfig() {
+        Throwable throwable = catchThrowable(() -> new IndexerConfig("META-INF/unparseable-threads.properties"));
+
+        then(throwable)
+            .hasMessage("can't parse threads config")
+            .hasRootCauseMessage("For input string: \"many\"");
+    }
+
+    @Test void shouldFailToLoadInvalidThreadsConfig() {
+        Throwable throwable = catchThrowable(() -> new IndexerConfig("META-INF/invalid-threads.properties"));
+
+        then(throwable).hasMessage("expect at least 1 thread but found 0");
+    }
+
+    @Test void shouldNotCacheByDefault() {
+        IndexerConfig unknown = new IndexerConfig("unknown");
+
+        then(unknown.cache()).isEmpty();
+    }
+
+    @Test void shouldLoadCacheConfig() {
+        IndexerConfig config = new IndexerConfig("META-INF/cache.properties");
+
+        then(config.cache()).contains(Paths.get("target/index-cache"));
+    }
 }
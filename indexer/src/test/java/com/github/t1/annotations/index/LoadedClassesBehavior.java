@@ -0,0 +1,77 @@
+package com.github.t1.annotations.index;
+
+import org.junit.jupiter.api.Test;
+
+import java.lang.ref.WeakReference;
+import java.net.URL;
+import java.net.URLClassLoader;
+
+import static org.assertj.core.api.Assertions.catchThrowable;
+import static org.assertj.core.api.BDDAssertions.then;
+
+class LoadedClassesBehavior {
+    static boolean initialized = false;
+
+    static class NotToBeInitialized {
+        static {
+            initialized = true;
+        }
+    }
+
+    @Test void shouldLoadClassWithoutInitializingIt() throws Exception {
+        Class<?> type = LoadedClasses.load(NotToBeInitialized.class.getName());
+
+        then(type.getName()).isEqualTo(NotToBeInitialized.class.getName());
+        then(initialized).isFalse();
+    }
+
+    @Test void shouldLoadSameClassFromDifferentClassLoaders() throws Exception {
+        ClassLoader classLoader = getClass().getClassLoader();
+        URLClassLoader childClassLoader = new URLClassLoader(new URL[0], classLoader);
+
+        Class<?> type = LoadedClasses.load(String.class.getName(), classLoader);
+        Class<?> child = LoadedClasses.load(String.class.getName(), childClassLoader);
+
+        then(child).isSameAs(type).isSameAs(String.class);
+    }
+
+    @Test void shouldLoadDifferentClassesWhenAlternatingClassLoaders() throws Exception {
+        ClassLoader classLoader = getClass().getClassLoader();
+        URL testClasses = NotToBeInitialized.class.getProtectionDomain().getCodeSource().getLocation();
+        URLClassLoader unrelatedClassLoader = new URLClassLoader(new URL[]{testClasses}, null);
+        String className = NotToBeInitialized.class.getName();
+
+        Class<?> type = LoadedClasses.load(className, classLoader);
+        Class<?> unrelated = LoadedClasses.load(className, unrelatedClassLoader);
+        Class<?> again = LoadedClasses.load(className, classLoader);
+
+        then(type).isSameAs(NotToBeInitialized.class).isSameAs(again);
+        then(unrelated).isNotSameAs(type);
+        then(unrelated.getClassLoader()).isSameAs(unrelatedClassLoader);
+        then(LoadedClasses.load(className, unrelatedClassLoader)).isSameAs(unrelated);
+    }
+
+    @Test void shouldNotHoldOnToClassLoader() throws Exception {
+        WeakReference<ClassLoader> childClassLoader = loadFromChildClassLoader();
+
+        for (int i = 0; i < 50 && childClassLoader.get() != null; i++) {
+            System.gc();
+            Thread.sleep(10);
+        }
+
+        then(childClassLoader.get()).describedAs("class loader collected").isNull();
+        then(LoadedClasses.load(String.class.getName(), new URLClassLoader(new URL[0]))).isSameAs(String.class);
+    }
+
+    private WeakReference<ClassLoader> loadFromChildClassLoader() throws ClassNotFoundException {
+        URLClassLoader childClassLoader = new URLClassLoader(new URL[0], getClass().getClassLoader());
+        LoadedClasses.load(String.class.getName(), childClassLoader);
+        return new WeakReference<>(childClassLoader);
+    }
+
+    @Test void shouldFailToLoadUnknownClass() {
+        Throwable throwable = catchThrowable(() -> LoadedClasses.load("some.unknown.Class"));
+
+        then(throwable).isInstanceOf(ClassNotFoundException.class);
+    }
+}
@@ -0,0 +1,120 @@
+package com.github.t1.annotations.index;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.lang.annotation.Repeatable;
+import java.lang.annotation.Retention;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.nio.file.Paths;
+import java.util.List;
+
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+import static java.util.Collections.singletonList;
+import static java.util.stream.Collectors.toList;
+import static org.assertj.core.api.BDDAssertions.then;
+
+class ResolvedIndexFileBehavior {
+    @Retention(RUNTIME)
+    @interface Marker {
+        String value();
+    }
+
+    @SuppressWarnings("unused")
+    @Marker("class")
+    static class Annotated {
+        @Marker("field") String field;
+
+        @Marker("method") void method(String arg) {}
+    }
+
+    @Retention(RUNTIME)
+    @Repeatable(Tags.class)
+    @interface Tag {
+        String value();
+    }
+
+    @Retention(RUNTIME)
+    @interface Tags {
+        Tag[] value();
+    }
+
+    @Tag("same") @Tag("same") @Tag("other")
+    static class Tagged {}
+
+    static class TagTarget {}
+
+    @SuppressWarnings("unused")
+    @Marker("own")
+    static class Target {
+        String field;
+
+        void method(String arg) {}
+    }
+
+    @Test void shouldReadWhatWasWritten() {
+        Index index = Index.fromClassPath(singletonList(testClasses()));
+        ClassInfo annotated = index.classInfo(Annotated.class);
+        ClassInfo target = index.classInfo(Target.class);
+        target.replaceAnnotations(annotated.getAnnotations());
+        field(target).replaceAnnotations(field(annotated).getAnnotations());
+        method(target).replaceAnnotations(method(annotated).getAnnotations());
+
+        Index read = writeAndRead(index);
+
+        then(read.isResolved()).isTrue();
+        ClassInfo readTarget = read.classInfo(Target.class);
+        then(strings(readTarget.getAnnotations())).containsExactly(
+            "@" + Marker.class.getName() + "(value = \"class\")");
+        then(strings(readTarget.getDeclaredAnnotations())).containsExactly(
+            "@" + Marker.class.getName() + "(value = \"own\")");
+        then(strings(field(readTarget).getAnnotations())).containsExactly(
+            "@" + Marker.class.getName() + "(value = \"field\")");
+        then(strings(method(readTarget).getAnnotations())).containsExactly(
+            "@" + Marker.class.getName() + "(value = \"method\")");
+        then(strings(read.classInfo(Annotated.class).getAnnotations())).containsExactly(
+            "@" + Marker.class.getName() + "(value = \"class\")");
+    }
+
+    @Test void shouldReadEqualRepeatedAnnotations() {
+        Index index = Index.fromClassPath(singletonList(testClasses()));
+        index.classInfo(TagTarget.class).replaceAnnotations(index.classInfo(Tagged.class).getAnnotations());
+
+        Index read = writeAndRead(index);
+
+        List<AnnotationInstance> tags = read.classInfo(TagTarget.class).getAnnotations();
+        then(strings(tags)).containsExactly(
+            "@" + Tag.class.getName() + "(value = \"same\")",
+            "@" + Tag.class.getName() + "(value = \"same\")",
+            "@" + Tag.class.getName() + "(value = \"other\")");
+        then(tags.get(1).delegate()).describedAs("second repeated annotation").isNotSameAs(tags.get(0).delegate());
+    }
+
+    private static Index writeAndRead(Index index) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        index.writeResolved(out);
+        return Index.fromResolved(new ByteArrayInputStream(out.toByteArray()));
+    }
+
+    private static FieldInfo field(ClassInfo classInfo) {
+        return classInfo.field("field").orElseThrow(IllegalStateException::new);
+    }
+
+    private static MethodInfo method(ClassInfo classInfo) {
+        return classInfo.method("method", String.class.getName()).orElseThrow(IllegalStateException::new);
+    }
+
+    private static List<String> strings(List<AnnotationInstance> annotations) {
+        return annotations.stream().map(AnnotationInstance::toString).collect(toList());
+    }
+
+    private static URL testClasses() {
+        try {
+            return Paths.get("target/test-classes").toUri().toURL();
+        } catch (MalformedURLException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package com.github.t1.annotations.maven;
+
+import com.github.t1.annotations.impl.PowerAnnotationsLoader;
+import com.github.t1.annotations.index.Index;
+import org.apache.maven.artifact.DependencyResolutionRequiredException;
+import org.apache.maven.plugin.AbstractMojo;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+import org.apache.maven.project.MavenProject;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.apache.maven.plugins.annotations.LifecyclePhase.PROCESS_CLASSES;
+import static org.apache.maven.plugins.annotations.ResolutionScope.TEST;
+
+/**
+ * Index the classes of the project and all of its runtime dependencies, resolve all annotations,
+ * and write the result to <code>META-INF/power-annotations.idx</code>,
+ * so the resolvers don't have to run at startup. The file is only used, if it covers the whole class path,
+ * i.e. not when it's in a library of an application that doesn't run this plugin itself.
+ */
+@Mojo(name = "index", defaultPhase = PROCESS_CLASSES, requiresDependencyResolution = TEST, threadSafe = true)
+public class IndexMojo extends AbstractMojo {
+    @Parameter(defaultValue = "${project}", readonly = true, required = true)
+    MavenProject project;
+
+    @Parameter(defaultValue = "${project.build.outputDirectory}", required = true)
+    File outputDirectory;
+
+    /** Set this to <code>test</code> to also cover the test classes and dependencies, e.g. to run the tests with it */
+    @Parameter(defaultValue = "runtime", required = true)
+    String classPathScope;
+
+    @Override public void execute() throws MojoExecutionException {
+        long t0 = System.currentTimeMillis();
+        Index index = Index.fromClassPath(classPath());
+        PowerAnnotationsLoader.resolve(index);
+        Path indexFile = outputDirectory.toPath().resolve("META-INF/power-annotations.idx");
+        write(index, indexFile);
+        getLog().info("wrote resolved annotations to " + indexFile + " in " + (System.currentTimeMillis() - t0) + "ms");
+    }
+
+    private List<URL> classPath() throws MojoExecutionException {
+        try {
+            List<URL> urls = new ArrayList<>();
+            List<String> elements = "test".equals(classPathScope)
+                ? project.getTestClasspathElements()
+                : project.getRuntimeClasspathElements();
+            for (String element : elements)
+                urls.add(new File(element).toURI().toURL());
+            return urls;
+        } catch (DependencyResolutionRequiredException | MalformedURLException e) {
+            throw new MojoExecutionException("can't build class path", e);
+        }
+    }
+
+    private void write(Index index, Path indexFile) throws MojoExecutionException {
+        try {
+            Files.createDirectories(indexFile.getParent());
+            try (OutputStream outputStream = Files.newOutputStream(indexFile)) {
+                index.writeResolved(outputStream);
+            }
+        } catch (IOException e) {
+            throw new MojoExecutionException("can't write " + indexFile, e);
+        }
+    }
+}
@@ -61,6 +61,23 @@ public class AnnotationValueTypeClasses {
     }
 
 
+    @Retention(RUNTIME)
+    public @interface NestedAnnotationWithDefaultValues {
+        String value();
+
+        String valueWithDefault() default "nested-default-value";
+
+        Class<?> classWithDefault() default Void.class;
+
+        int[] arrayWithDefault() default {1, 2};
+    }
+
+    @Retention(RUNTIME)
+    public @interface AnnotationWithNestedAnnotation {
+        NestedAnnotationWithDefaultValues value();
+    }
+
+
     @DifferentValueTypesAnnotation(booleanValue = true)
     public static class AnnotatedWithBooleanValueClass {}
 
@@ -133,4 +150,8 @@ public class AnnotationValueTypeClasses {
 
     @DifferentValueTypesAnnotation(annotationArrayValue = {@SomeAnnotation("annotation-value1"), @SomeAnnotation("annotation-value2")})
     public static class AnnotatedWithAnnotationArrayValueClass {}
+
+
+    @AnnotationWithNestedAnnotation(@NestedAnnotationWithDefaultValues("nested-value"))
+    public static class AnnotatedWithNestedAnnotationWithDefaultValuesClass {}
 }
@@ -10,6 +10,9 @@ public class InheritedAnnotationClasses {
     @RepeatableAnnotation(2)
     public static class InheritingClass extends Super implements Base, SideBase {}
 
+    @RepeatableAnnotation(11)
+    public static class DiamondClass extends InheritingClass implements Base, SuperBase {}
+
     @SomeAnnotation("3")
     @RepeatableAnnotation(3)
     public static class Super {
@@ -42,4 +45,14 @@ public class InheritedAnnotationClasses {
         @RepeatableAnnotation(10)
         default String method() { return null; }
     }
+
+    /** The compiler adds a synthetic bridge method <code>compareTo(Object)</code> */
+    public static class SuperWithParameters implements Comparable<SuperWithParameters> {
+        @SomeAnnotation("12")
+        public void withParameters(String[] strings, int i) {}
+
+        @Override public int compareTo(SuperWithParameters that) { return 0; }
+    }
+
+    public static class InheritingWithParameters extends SuperWithParameters {}
 }
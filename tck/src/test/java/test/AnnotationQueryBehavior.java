@@ -0,0 +1,66 @@
+package test;
+
+import com.github.t1.annotations.AmbiguousAnnotationResolutionException;
+import com.github.t1.annotations.AnnotationQuery;
+import com.github.t1.annotations.Annotations;
+import com.github.t1.annotations.tck.DirectAnnotationClasses.SomeAnnotatedClass;
+import com.github.t1.annotations.tck.DirectAnnotationClasses.SomeAnnotatedInterface;
+import com.github.t1.annotations.tck.DirectAnnotationClasses.SomeAnnotationWithDefaultValue;
+import com.github.t1.annotations.tck.DirectAnnotationClasses.SomeClassWithAnnotatedField;
+import com.github.t1.annotations.tck.DirectAnnotationClasses.SomeClassWithAnnotatedMethod;
+import com.github.t1.annotations.tck.DirectAnnotationClasses.SomeUnannotatedClass;
+import com.github.t1.annotations.tck.RepeatableAnnotation;
+import com.github.t1.annotations.tck.RepeatableAnnotationClasses.RepeatedAnnotationClass;
+import com.github.t1.annotations.tck.SomeAnnotation;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.catchThrowable;
+import static org.assertj.core.api.BDDAssertions.then;
+
+public class AnnotationQueryBehavior {
+    AnnotationQuery<SomeAnnotation> query = Annotations.query(SomeAnnotation.class);
+
+    @Test void shouldQueryClassAnnotation() {
+        SomeAnnotation annotation = query.on(SomeAnnotatedClass.class);
+
+        then(query.type()).isEqualTo(SomeAnnotation.class);
+        then(annotation.value()).isEqualTo("class-annotation");
+        then(query.on(SomeAnnotatedClass.class)).isEqualTo(annotation);
+    }
+
+    @Test void shouldQueryMissingClassAnnotation() {
+        then(query.on(SomeUnannotatedClass.class)).isNull();
+        then(Annotations.query(SomeAnnotationWithDefaultValue.class).on(SomeAnnotatedClass.class)).isNull();
+    }
+
+    @Test void shouldQueryDifferentTypesOnSameClass() {
+        SomeAnnotationWithDefaultValue other = Annotations.query(SomeAnnotationWithDefaultValue.class).on(SomeAnnotatedInterface.class);
+
+        then(other.valueWithDefault()).isEqualTo("default-value");
+        then(query.on(SomeAnnotatedInterface.class).value()).isEqualTo("interface-annotation");
+    }
+
+    @Test void shouldQueryFieldAnnotation() throws NoSuchFieldException {
+        SomeAnnotation annotation = query.on(SomeClassWithAnnotatedField.class.getDeclaredField("foo"));
+
+        then(annotation.value()).isEqualTo("field-annotation");
+    }
+
+    @Test void shouldQueryMethodAnnotation() throws NoSuchMethodException {
+        SomeAnnotation annotation = query.on(SomeClassWithAnnotatedMethod.class.getDeclaredMethod("foo", String.class));
+
+        then(annotation.value()).isEqualTo("method-annotation");
+    }
+
+    @Test void shouldFailToQueryRepeatedAnnotation() {
+        AnnotationQuery<RepeatableAnnotation> repeatableQuery = Annotations.query(RepeatableAnnotation.class);
+
+        for (int i = 0; i < 2; i++) { // the second time, the result is cached
+            Throwable throwable = catchThrowable(() -> repeatableQuery.on(RepeatedAnnotationClass.class));
+
+            then(throwable)
+                .isInstanceOf(AmbiguousAnnotationResolutionException.class)
+                .hasMessageContaining(RepeatableAnnotation.class.getName());
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package test;
 
 import com.github.t1.annotations.Annotations;
+import com.github.t1.annotations.tck.AnnotationValueTypeClasses;
 import com.github.t1.annotations.tck.AnnotationValueTypeClasses.AnnotatedWithAnnotationArrayValueClass;
 import com.github.t1.annotations.tck.AnnotationValueTypeClasses.AnnotatedWithAnnotationValueClass;
 import com.github.t1.annotations.tck.AnnotationValueTypeClasses.AnnotatedWithBooleanArrayValueClass;
@@ -21,20 +22,28 @@ import com.github.t1.annotations.tck.AnnotationValueTypeClasses.AnnotatedWithInt
 import com.github.t1.annotations.tck.AnnotationValueTypeClasses.AnnotatedWithIntValueClass;
 import com.github.t1.annotations.tck.AnnotationValueTypeClasses.AnnotatedWithLongArrayValueClass;
 import com.github.t1.annotations.tck.AnnotationValueTypeClasses.AnnotatedWithLongValueClass;
+import com.github.t1.annotations.tck.AnnotationValueTypeClasses.AnnotatedWithNestedAnnotationWithDefaultValuesClass;
 import com.github.t1.annotations.tck.AnnotationValueTypeClasses.AnnotatedWithShortArrayValueClass;
 import com.github.t1.annotations.tck.AnnotationValueTypeClasses.AnnotatedWithShortValueClass;
 import com.github.t1.annotations.tck.AnnotationValueTypeClasses.AnnotatedWithStringArrayValueClass;
 import com.github.t1.annotations.tck.AnnotationValueTypeClasses.AnnotatedWithStringValueClass;
+import com.github.t1.annotations.tck.AnnotationValueTypeClasses.AnnotationWithNestedAnnotation;
 import com.github.t1.annotations.tck.AnnotationValueTypeClasses.DifferentValueTypesAnnotation;
+import com.github.t1.annotations.tck.AnnotationValueTypeClasses.NestedAnnotationWithDefaultValues;
 import com.github.t1.annotations.tck.SomeAnnotation;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
 
+import java.lang.annotation.Annotation;
+import java.lang.annotation.RetentionPolicy;
+import java.util.HashSet;
 import java.util.Optional;
+import java.util.Set;
 import java.util.stream.Stream;
 
 import static java.lang.annotation.RetentionPolicy.CLASS;
 import static java.lang.annotation.RetentionPolicy.RUNTIME;
+import static org.assertj.core.api.Assertions.catchThrowable;
 import static org.assertj.core.api.BDDAssertions.then;
 
 @Nested class AnnotationValueTypeBehavior {
@@ -166,6 +175,14 @@ import static org.assertj.core.api.BDDAssertions.then;
         then(annotation.stringArrayValue()).containsExactly("foo", "bar");
     }
 
+    @Test void shouldNotShareMutableArrayAnnotationValue() {
+        DifferentValueTypesAnnotation annotation = getDifferentValueTypesAnnotation(AnnotatedWithStringArrayValueClass.class);
+
+        annotation.stringArrayValue()[0] = "changed";
+
+        then(annotation.stringArrayValue()).containsExactly("foo", "bar");
+    }
+
     @Test void shouldGetEnumArrayAnnotationValue() {
         DifferentValueTypesAnnotation annotation = getDifferentValueTypesAnnotation(AnnotatedWithEnumArrayValueClass.class);
 
@@ -186,6 +203,99 @@ import static org.assertj.core.api.BDDAssertions.then;
     }
 
 
+    @Test void shouldGetDefaultValuesOfNestedAnnotation() {
+        AnnotationWithNestedAnnotation annotation = Annotations.on(AnnotatedWithNestedAnnotationWithDefaultValuesClass.class)
+            .get(AnnotationWithNestedAnnotation.class)
+            .orElseThrow(() -> new AssertionError("missing annotation"));
+
+        NestedAnnotationWithDefaultValues nested = annotation.value();
+
+        then(nested.value()).isEqualTo("nested-value");
+        then(nested.valueWithDefault()).isEqualTo("nested-default-value");
+        then(nested.classWithDefault()).isEqualTo(Void.class);
+        then(nested.arrayWithDefault()).containsExactly(1, 2);
+        AnnotationWithNestedAnnotation jdkAnnotation = AnnotatedWithNestedAnnotationWithDefaultValuesClass.class
+            .getAnnotation(AnnotationWithNestedAnnotation.class);
+        then(annotation).isEqualTo(jdkAnnotation);
+        then(annotation.hashCode()).isEqualTo(jdkAnnotation.hashCode());
+    }
+
+
+    @Test void shouldBeEqualToJdkAnnotationsWithAllValueTypes() {
+        Stream.of(AnnotationValueTypeClasses.class.getClasses())
+            .filter(type -> type.isAnnotationPresent(DifferentValueTypesAnnotation.class))
+            .forEach(type -> {
+                DifferentValueTypesAnnotation annotation = getDifferentValueTypesAnnotation(type);
+                DifferentValueTypesAnnotation jdkAnnotation = type.getAnnotation(DifferentValueTypesAnnotation.class);
+
+                then(annotation).as(type.getSimpleName()).isEqualTo(jdkAnnotation);
+                then(jdkAnnotation).as(type.getSimpleName()).isEqualTo(annotation);
+                then(annotation.hashCode()).as(type.getSimpleName()).isEqualTo(jdkAnnotation.hashCode());
+            });
+    }
+
+    @Test void shouldNotBeEqualToAnnotationWithDifferentValue() {
+        DifferentValueTypesAnnotation annotation = getDifferentValueTypesAnnotation(AnnotatedWithIntValueClass.class);
+        DifferentValueTypesAnnotation other = getDifferentValueTypesAnnotation(AnnotatedWithLongValueClass.class);
+
+        then(annotation).isNotEqualTo(other);
+        then(annotation).isNotEqualTo(AnnotatedWithLongValueClass.class.getAnnotation(DifferentValueTypesAnnotation.class));
+    }
+
+    @Test void shouldFindJdkAnnotationInHashSet() {
+        Set<Annotation> set = new HashSet<>();
+        set.add(AnnotatedWithStringArrayValueClass.class.getAnnotation(DifferentValueTypesAnnotation.class));
+
+        then(set).contains(getDifferentValueTypesAnnotation(AnnotatedWithStringArrayValueClass.class));
+    }
+
+    @Test void shouldGetPrimitiveMemberValueWithoutAnnotation() {
+        Integer value = Annotations.on(AnnotatedWithIntValueClass.class).value(DifferentValueTypesAnnotation.class, "intValue", int.class);
+
+        then(value).isEqualTo(42);
+    }
+
+    @Test void shouldGetDefaultMemberValueWithoutAnnotation() {
+        String value = Annotations.on(AnnotatedWithIntValueClass.class).value(DifferentValueTypesAnnotation.class, "stringValue", String.class);
+
+        then(value).isEqualTo("");
+    }
+
+    @Test void shouldGetEnumMemberValueWithoutAnnotation() {
+        RetentionPolicy value = Annotations.on(AnnotatedWithEnumValueClass.class).value(DifferentValueTypesAnnotation.class, "enumValue", RetentionPolicy.class);
+
+        then(value).isEqualTo(RUNTIME);
+    }
+
+    @Test void shouldGetClassMemberValueWithoutAnnotation() {
+        Annotations annotations = Annotations.on(AnnotatedWithClassValueClass.class);
+
+        then(annotations.value(DifferentValueTypesAnnotation.class, "classValue", Class.class)).isEqualTo(String.class);
+        then(annotations.value(DifferentValueTypesAnnotation.class, "classValue", String.class)).isEqualTo(String.class.getName());
+    }
+
+    @Test void shouldGetArrayMemberValuesWithoutAnnotation() {
+        then(Annotations.on(AnnotatedWithIntArrayValueClass.class).value(DifferentValueTypesAnnotation.class, "intArrayValue", int[].class))
+            .containsExactly(42, 43);
+        then(Annotations.on(AnnotatedWithClassArrayValueClass.class).value(DifferentValueTypesAnnotation.class, "classArrayValue", String[].class))
+            .containsExactly(String.class.getName(), Integer.class.getName());
+    }
+
+    @Test void shouldFailToGetMemberValueAsWrongType() {
+        Annotations annotations = Annotations.on(AnnotatedWithIntValueClass.class);
+
+        Throwable throwable = catchThrowable(() -> annotations.value(DifferentValueTypesAnnotation.class, "intValue", String.class));
+
+        then(throwable).isInstanceOf(IllegalArgumentException.class)
+            .hasMessage("member intValue of " + DifferentValueTypesAnnotation.class.getName() + " is a int, not a java.lang.String");
+    }
+
+    @Test void shouldGetNullMemberValueOfMissingAnnotation() {
+        Object value = Annotations.on(AnnotationValueTypeClasses.class).value(DifferentValueTypesAnnotation.class, "intValue", int.class);
+
+        then(value).isNull();
+    }
+
     private DifferentValueTypesAnnotation getDifferentValueTypesAnnotation(Class<?> type) {
         Annotations annotations = Annotations.on(type);
 
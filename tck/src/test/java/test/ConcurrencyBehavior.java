@@ -0,0 +1,108 @@
+package test;
+
+import com.github.t1.annotations.Annotations;
+import com.github.t1.annotations.tck.AnnotationValueTypeClasses;
+import com.github.t1.annotations.tck.CombinedAnnotationClasses;
+import com.github.t1.annotations.tck.ContainingTypeClasses;
+import com.github.t1.annotations.tck.DirectAnnotationClasses;
+import com.github.t1.annotations.tck.InheritedAnnotationClasses;
+import com.github.t1.annotations.tck.MixinClasses;
+import com.github.t1.annotations.tck.RepeatableAnnotationClasses;
+import com.github.t1.annotations.tck.StereotypeClasses;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static java.util.stream.Collectors.toList;
+import static org.assertj.core.api.BDDAssertions.then;
+
+/** Many threads querying the same targets at the same time must all see the same annotations */
+public class ConcurrencyBehavior {
+    private static final int THREADS = 16;
+    private static final int ROUNDS = 20;
+
+    @Test void shouldResolveTheSameAnnotationsInAllThreads() throws Exception {
+        List<Query> queries = Stream.of(
+            AnnotationValueTypeClasses.class, CombinedAnnotationClasses.class, ContainingTypeClasses.class,
+            DirectAnnotationClasses.class, InheritedAnnotationClasses.class, MixinClasses.class,
+            RepeatableAnnotationClasses.class, StereotypeClasses.class)
+            .flatMap(ConcurrencyBehavior::withNestedClasses)
+            .flatMap(ConcurrencyBehavior::queries)
+            .collect(toList());
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<Map<String, String>>> futures = new ArrayList<>();
+            for (int i = 0; i < THREADS; i++) {
+                Random random = new Random(i);
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    Map<String, String> results = new TreeMap<>();
+                    for (int round = 0; round < ROUNDS; round++) {
+                        List<Query> shuffled = new ArrayList<>(queries);
+                        Collections.shuffle(shuffled, random);
+                        for (Query query : shuffled)
+                            results.merge(query.name, query.run(), (a, b) -> a.equals(b) ? a : a + " <> " + b);
+                    }
+                    return results;
+                }));
+            }
+            start.countDown();
+
+            Map<String, String> first = futures.get(0).get(60, SECONDS);
+            then(first).hasSize(queries.size());
+            then(first.values()).noneMatch(result -> result.contains(" <> "));
+            for (Future<Map<String, String>> future : futures)
+                then(future.get(60, SECONDS)).isEqualTo(first);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static Stream<Class<?>> withNestedClasses(Class<?> type) {
+        return Stream.concat(Stream.of(type), Stream.of(type.getDeclaredClasses())
+            .flatMap(ConcurrencyBehavior::withNestedClasses));
+    }
+
+    private static Stream<Query> queries(Class<?> type) {
+        return Stream.of(
+            Stream.of(new Query(type.getName(), () -> Annotations.on(type))),
+            Stream.of(type.getDeclaredFields())
+                .filter(field -> !field.isSynthetic())
+                .map(field -> new Query(field.toString(), () -> Annotations.on(field))),
+            Stream.of(type.getDeclaredMethods())
+                .filter(method -> !method.isSynthetic())
+                .map(method -> new Query(method.toString(), () -> Annotations.on(method))))
+            .flatMap(stream -> stream);
+    }
+
+    private static class Query {
+        private final String name;
+        private final Supplier<Annotations> annotations;
+
+        private Query(String name, Supplier<Annotations> annotations) {
+            this.name = name;
+            this.annotations = annotations;
+        }
+
+        private String run() {
+            try {
+                return annotations.get().all().map(Object::toString).collect(toList()).toString();
+            } catch (RuntimeException e) {
+                return e.getClass().getName() + ": " + e.getMessage();
+            }
+        }
+    }
+}
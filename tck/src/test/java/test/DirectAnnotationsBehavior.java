@@ -16,11 +16,13 @@ import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
 
 import java.lang.annotation.Annotation;
+import java.lang.reflect.AnnotatedElement;
 import java.lang.reflect.Method;
 import java.util.Optional;
 import java.util.stream.Stream;
 
 import static org.assertj.core.api.Assertions.catchThrowable;
+import static org.assertj.core.api.Assertions.fail;
 import static org.assertj.core.api.BDDAssertions.then;
 
 public class DirectAnnotationsBehavior {
@@ -48,6 +50,23 @@ public class DirectAnnotationsBehavior {
             thenIsSomeAnnotation(annotation, "interface-annotation");
         }
 
+        @Test void shouldReuseClassAnnotationInstance() {
+            SomeAnnotation first = Annotations.on(SomeAnnotatedClass.class).get(SomeAnnotation.class).orElseThrow(AssertionError::new);
+            SomeAnnotation second = Annotations.on(SomeAnnotatedClass.class).get(SomeAnnotation.class).orElseThrow(AssertionError::new);
+
+            then(second).isSameAs(first);
+            then(Annotations.on(SomeAnnotatedClass.class).all()).containsOnly(first);
+        }
+
+        @Test void shouldGetClassAnnotationWithoutOptional() {
+            Annotations annotations = Annotations.on(SomeAnnotatedClass.class);
+
+            then(annotations.isPresent(SomeAnnotation.class)).isTrue();
+            then(annotations.isPresent(SomeAnnotationWithDefaultValue.class)).isFalse();
+            then(annotations.getOrNull(SomeAnnotation.class)).isEqualTo(annotations.get(SomeAnnotation.class).orElse(null));
+            then(annotations.getOrNull(SomeAnnotation.class).value()).isEqualTo("class-annotation");
+        }
+
         @Test void shouldGetDefaultValueOfClassAnnotation() {
             Annotations annotations = Annotations.on(SomeAnnotatedInterface.class);
 
@@ -87,6 +106,14 @@ public class DirectAnnotationsBehavior {
                 .hasMessage("no field 'bar' in " + SomeClassWithAnnotatedField.class); // implementation detail?
         }
 
+        @Test void shouldReuseAnnotationsOfSameField() throws NoSuchFieldException {
+            Annotations first = Annotations.on(SomeClassWithAnnotatedField.class.getDeclaredField("foo"));
+            Annotations second = Annotations.onField(SomeClassWithAnnotatedField.class, "foo");
+
+            then(second).isSameAs(first);
+            thenIsSomeAnnotation(second.get(SomeAnnotation.class), "field-annotation");
+        }
+
         @Test void shouldGetFieldAnnotation() {
             Annotations annotations = Annotations.onField(SomeClassWithAnnotatedField.class, "foo");
 
@@ -132,6 +159,21 @@ public class DirectAnnotationsBehavior {
                 "@" + SomeAnnotation.class.getName() + "(value = \"method-annotation\")");
         }
 
+        @Test void shouldReuseAnnotationsOfSameMethod() throws NoSuchMethodException {
+            Annotations first = Annotations.on(fooMethod());
+            Annotations second = Annotations.on(fooMethod());
+
+            then(second).isSameAs(first);
+            thenIsSomeAnnotation(second.get(SomeAnnotation.class), "method-annotation");
+        }
+
+        @Test void shouldReuseAnnotationsOfSameMethodByName() throws NoSuchMethodException {
+            Annotations first = Annotations.on(fooMethod());
+            Annotations second = Annotations.onMethod(SomeInterfaceWithAnnotatedMethod.class, "foo", String.class);
+
+            then(second).isSameAs(first);
+        }
+
         private Method fooMethod() throws NoSuchMethodException {
             return SomeInterfaceWithAnnotatedMethod.class.getDeclaredMethod("foo", String.class);
         }
@@ -169,9 +211,22 @@ public class DirectAnnotationsBehavior {
         }
     }
 
+    @Test void shouldFindAllTargetsAnnotatedWith() throws NoSuchFieldException, NoSuchMethodException {
+        Stream<AnnotatedElement> targets = Annotations.allTargetsAnnotatedWith(SomeAnnotation.class);
+
+        then(targets).contains(
+            SomeAnnotatedClass.class,
+            SomeAnnotatedInterface.class,
+            SomeClassWithAnnotatedField.class.getDeclaredField("foo"),
+            SomeClassWithAnnotatedMethod.class.getDeclaredMethod("foo", String.class));
+    }
+
     void thenEmpty(Annotations annotations) {
         then(annotations.all()).isEmpty();
         then(annotations.get(SomeAnnotation.class)).isEmpty();
+        then(annotations.isPresent(SomeAnnotation.class)).isFalse();
+        then(annotations.getOrNull(SomeAnnotation.class)).isNull();
+        annotations.forEach(SomeAnnotation.class, annotation -> fail("unexpected " + annotation));
     }
 
     void thenIsSomeAnnotation(
@@ -1,15 +1,21 @@
 package test;
 
 import com.github.t1.annotations.Annotations;
+import com.github.t1.annotations.tck.InheritedAnnotationClasses.DiamondClass;
 import com.github.t1.annotations.tck.InheritedAnnotationClasses.InheritingClass;
 import com.github.t1.annotations.tck.InheritedAnnotationClasses.InheritingInterface;
+import com.github.t1.annotations.tck.InheritedAnnotationClasses.InheritingWithParameters;
+import com.github.t1.annotations.tck.InheritedAnnotationClasses.SuperWithParameters;
 import com.github.t1.annotations.tck.RepeatableAnnotation;
 import com.github.t1.annotations.tck.SomeAnnotation;
 import org.junit.jupiter.api.Test;
 
 import java.lang.annotation.Annotation;
+import java.util.List;
+import java.util.Map;
 import java.util.stream.Stream;
 
+import static java.util.stream.Collectors.toList;
 import static org.assertj.core.api.BDDAssertions.then;
 
 public class InheritedBehavior {
@@ -85,4 +91,39 @@ public class InheritedBehavior {
             "@" + RepeatableAnnotation.class.getName() + "(value = 10)",
             "@" + RepeatableAnnotation.class.getName() + "(value = 9)");
     }
+
+    @Test void shouldGetAnnotationsOfDiamondInterfacesOnlyOnce() {
+        Annotations annotations = Annotations.on(DiamondClass.class);
+
+        Stream<RepeatableAnnotation> all = annotations.all(RepeatableAnnotation.class);
+
+        then(all.map(RepeatableAnnotation::value)).containsExactlyInAnyOrder(11, 2, 3, 6, 8, 9);
+    }
+
+    @Test void shouldGetAllFieldsAndMethodsOfClassAtOnce() {
+        Map<String, Annotations> fields = Annotations.onFields(InheritingClass.class);
+        Map<String, Annotations> methods = Annotations.onMethods(InheritingClass.class);
+
+        then(fields).containsOnlyKeys("field");
+        then(fields.get("field").all().map(Object::toString))
+            .containsExactlyInAnyOrderElementsOf(toStrings(Annotations.onField(InheritingClass.class, "field")));
+        then(methods).containsOnlyKeys("method()");
+        then(methods.get("method()").all().map(Object::toString))
+            .containsExactlyInAnyOrderElementsOf(toStrings(Annotations.onMethod(InheritingClass.class, "method")));
+    }
+
+    @Test void shouldGetAllMethodsWithArrayAndPrimitiveParametersButWithoutBridges() {
+        Map<String, Annotations> methods = Annotations.onMethods(InheritingWithParameters.class);
+
+        then(methods).containsOnlyKeys(
+            "withParameters(java.lang.String[], int)",
+            "compareTo(" + SuperWithParameters.class.getTypeName() + ")");
+        then(methods.get("withParameters(java.lang.String[], int)").all().map(Object::toString))
+            .containsExactlyInAnyOrderElementsOf(toStrings(
+                Annotations.onMethod(InheritingWithParameters.class, "withParameters", String[].class, int.class)));
+    }
+
+    private List<String> toStrings(Annotations annotations) {
+        return annotations.all().map(Object::toString).collect(toList());
+    }
 }
@@ -8,6 +8,8 @@ import com.github.t1.annotations.tck.RepeatableAnnotationClasses.UnrepeatedAnnot
 import org.junit.jupiter.api.Test;
 
 import java.lang.annotation.Annotation;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Optional;
 import java.util.stream.Stream;
 
@@ -49,4 +51,24 @@ public class RepeatableAnnotationBehavior {
 
         then(all.map(RepeatableAnnotation::value)).containsExactlyInAnyOrder(1, 2);
     }
+
+    @Test void shouldFindRepeatingAnnotation() {
+        then(repeatedAnnotations.isPresent(RepeatableAnnotation.class)).isTrue();
+    }
+
+    @Test void shouldFailToGetRepeatingAnnotationOrNull() {
+        Throwable throwable = catchThrowable(() -> repeatedAnnotations.getOrNull(RepeatableAnnotation.class));
+
+        then(throwable)
+            .isInstanceOf(AmbiguousAnnotationResolutionException.class)
+            .hasMessageContaining(RepeatableAnnotation.class.getName());
+    }
+
+    @Test void shouldGetEachTyped() {
+        List<Integer> values = new ArrayList<>();
+
+        repeatedAnnotations.forEach(RepeatableAnnotation.class, annotation -> values.add(annotation.value()));
+
+        then(values).containsExactlyInAnyOrder(1, 2);
+    }
 }